@@ -0,0 +1,105 @@
+package com.pauwma.barrierview.benchmark;
+
+import com.pauwma.barrierview.geometry.EdgeMerger;
+import com.pauwma.barrierview.geometry.EdgeTransform;
+import com.pauwma.barrierview.geometry.LongHashSet;
+import com.pauwma.barrierview.geometry.OutlineBuilder;
+import com.pauwma.barrierview.geometry.SegmentList;
+import com.pauwma.barrierview.geometry.ShapeQueue;
+import com.pauwma.barrierview.geometry.ShapeSync;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation check for the steady-state emit path: {@link ShapeSync} diffing
+ * a frame against what the client has and queueing it nearest-first, then
+ * each shape turned into its transform, the steps ShapeStream takes around a
+ * packet cache hit. The cache lookup itself is covered by EmitAllocationTest. Bytes allocated by the benchmark thread are read from the
+ * ThreadMXBean around every measurement iteration, and the run fails if an
+ * edge costs more than MAX_BYTES_PER_EDGE. Run with {@code -prof gc} for the
+ * JMH allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmitAllocationBenchmark {
+
+    // Leaves room for JMH's own bookkeeping, which is spread over millions of edges per iteration
+    private static final double MAX_BYTES_PER_EDGE = 1.0;
+
+    private static final long REFRESH_AFTER_MS = 7_000L;
+
+    @Param({"WALL", "FLOOR", "SCATTERED", "CUBE"})
+    public Fixtures fixture;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private SegmentList segments;
+    private final ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+    private long now = 0;
+    private final double[] transform = new double[6];
+    private long allocatedAt;
+    private long edges;
+
+    @Setup
+    public void setup() {
+        LongHashSet edgeSet = new LongHashSet();
+        OutlineBuilder.computeEdges(fixture.blocks(), edgeSet);
+        segments = new SegmentList();
+        EdgeMerger.merge(edgeSet, segments);
+        // Let the scratch tables grow to the frame size before anything is measured
+        emitRefresh();
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        edges = 0;
+        allocatedAt = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkAllocations() {
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAt;
+        double perEdge = edges == 0 ? 0 : (double) allocated / edges;
+        if (perEdge > MAX_BYTES_PER_EDGE) {
+            throw new IllegalStateException(String.format(
+                    "Emit path allocated %.2f bytes per edge (%d bytes for %d edges)", perEdge, allocated, edges));
+        }
+    }
+
+    // A keep-alive refresh: every shape of an unchanged frame is queued and emitted again
+    @Benchmark
+    public double emitRefresh() {
+        now += REFRESH_AFTER_MS;
+        sync.colorKeys(1)[0] = 0xFF0000;
+        sync.update(segments, now, 16.5, 32.5, 16.5);
+        ShapeQueue queue = sync.pending();
+        double sum = 0;
+        while (!queue.isEmpty()) {
+            SegmentList queued = queue.segments();
+            int i = queue.next();
+            EdgeTransform.compute(queued, i, 0.04, transform);
+            sync.sent(queued, i);
+            sum += transform[0];
+        }
+        edges += segments.size();
+        return sum;
+    }
+}
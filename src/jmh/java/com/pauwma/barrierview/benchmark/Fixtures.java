@@ -0,0 +1,81 @@
+package com.pauwma.barrierview.benchmark;
+
+import com.pauwma.barrierview.geometry.LongHashSet;
+import com.pauwma.barrierview.geometry.PackedPos;
+import com.pauwma.barrierview.geometry.VoxelSource;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Synthetic barrier volumes inside one 32 x 64 x 32 chunk slab at the origin,
+ * exposed both as a block set and as a VoxelSource for the scan.
+ */
+public enum Fixtures {
+    // 32 wide, 30 tall, one block thick
+    WALL {
+        @Override
+        boolean contains(int x, int y, int z) {
+            return z == 16 && y < 30;
+        }
+    },
+    // 32 x 32, one block thick
+    FLOOR {
+        @Override
+        boolean contains(int x, int y, int z) {
+            return y == 10;
+        }
+    },
+    // About 5% of the slab, fixed seed
+    SCATTERED {
+        @Override
+        boolean contains(int x, int y, int z) {
+            return SCATTER.get(index(x, y, z));
+        }
+    },
+    // Solid 32 x 32 x 32
+    CUBE {
+        @Override
+        boolean contains(int x, int y, int z) {
+            return y < 32;
+        }
+    };
+
+    public static final int WIDTH = 32;
+    public static final int HEIGHT = 64;
+
+    private static final BitSet SCATTER = new BitSet(WIDTH * HEIGHT * WIDTH);
+
+    static {
+        Random random = new Random(42);
+        for (int i = 0; i < WIDTH * HEIGHT * WIDTH; i++) {
+            if (random.nextInt(20) == 0) {
+                SCATTER.set(i);
+            }
+        }
+    }
+
+    abstract boolean contains(int x, int y, int z);
+
+    public VoxelSource source() {
+        return (x, y, z) -> x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT && z >= 0 && z < WIDTH && contains(x, y, z);
+    }
+
+    public LongHashSet blocks() {
+        LongHashSet blocks = new LongHashSet();
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = 0; z < WIDTH; z++) {
+                    if (contains(x, y, z)) {
+                        blocks.add(PackedPos.pack(x, y, z));
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y * WIDTH + z) * WIDTH + x;
+    }
+}
@@ -0,0 +1,143 @@
+package com.pauwma.barrierview.benchmark;
+
+import com.pauwma.barrierview.geometry.ConnectedGroups;
+import com.pauwma.barrierview.geometry.CuboidPacker;
+import com.pauwma.barrierview.geometry.EdgeMerger;
+import com.pauwma.barrierview.geometry.EdgeTransform;
+import com.pauwma.barrierview.geometry.IncrementalOutline;
+import com.pauwma.barrierview.geometry.LongHashSet;
+import com.pauwma.barrierview.geometry.OutlineBuilder;
+import com.pauwma.barrierview.geometry.PackedPos;
+import com.pauwma.barrierview.geometry.SectionScanner;
+import com.pauwma.barrierview.geometry.SegmentList;
+import com.pauwma.barrierview.geometry.VoxelBitmap;
+import com.pauwma.barrierview.geometry.VoxelSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of a refresh, run on synthetic volumes: the section scan, outline
+ * edge selection and merging, single-block outline updates, connected
+ * grouping, cuboid packing, and segment-to-transform emission.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+    @Param({"WALL", "FLOOR", "SCATTERED", "CUBE"})
+    public Fixtures fixture;
+
+    private VoxelSource source;
+    private LongHashSet blocks;
+    private LongHashSet edges;
+    private SegmentList segments;
+    private final VoxelBitmap bitmap = new VoxelBitmap();
+    private final IncrementalOutline incremental = new IncrementalOutline(0);
+    private final double[] transform = new double[6];
+
+    @Setup
+    public void setup() {
+        source = fixture.source();
+        blocks = fixture.blocks();
+        edges = new LongHashSet();
+        OutlineBuilder.computeEdges(blocks, edges);
+        segments = new SegmentList();
+        EdgeMerger.merge(edges, segments);
+        bitmap.reset(0, 0, 0, Fixtures.WIDTH, Fixtures.HEIGHT, Fixtures.WIDTH);
+        blocks.forEach(pos -> bitmap.set(PackedPos.x(pos), PackedPos.y(pos), PackedPos.z(pos)));
+        incremental.rebuild(bitmap, false);
+    }
+
+    // Both sections of the slab, block by block
+    @Benchmark
+    public void scan(Blackhole bh) {
+        bh.consume(SectionScanner.scan(source, 0, 0, 0));
+        bh.consume(SectionScanner.scan(source, 0, 0, SectionScanner.SIZE));
+    }
+
+    @Benchmark
+    public LongHashSet outlineEdges() {
+        LongHashSet out = new LongHashSet(blocks.size() * 2);
+        OutlineBuilder.computeEdges(blocks, out);
+        return out;
+    }
+
+    // Same edges from the bitmap, 64 blocks per step
+    @Benchmark
+    public LongHashSet outlineEdgesBitmap() {
+        LongHashSet out = new LongHashSet(blocks.size() * 2);
+        OutlineBuilder.computeEdges(bitmap, out);
+        return out;
+    }
+
+    // Bitmap outline on SIMD lanes; same as outlineEdgesBitmap if the Vector API is unavailable
+    @Benchmark
+    public LongHashSet outlineEdgesVector() {
+        LongHashSet out = new LongHashSet(blocks.size() * 2);
+        OutlineBuilder.computeEdges(bitmap, out, true);
+        return out;
+    }
+
+    @Benchmark
+    public SegmentList mergeEdges() {
+        SegmentList out = new SegmentList(edges.size() / 4);
+        EdgeMerger.merge(edges, out);
+        return out;
+    }
+
+    // One block in the middle of the volume flipped and flipped back, against the retained outline;
+    // compare with outlineEdgesBitmap + mergeEdges for the full recompute it replaces
+    @Benchmark
+    public SegmentList toggleBlock() {
+        int x = Fixtures.WIDTH / 2;
+        int y = Fixtures.HEIGHT / 2;
+        int z = Fixtures.WIDTH / 2;
+        boolean present = blocks.contains(PackedPos.pack(x, y, z));
+        incremental.set(x, y, z, !present);
+        incremental.set(x, y, z, present);
+        return incremental.segments();
+    }
+
+    // The 2x2 rule on its own, over all 16 neighbour combinations
+    @Benchmark
+    public void shouldDrawEdge(Blackhole bh) {
+        for (int mask = 0; mask < 16; mask++) {
+            bh.consume(OutlineBuilder.shouldDrawEdge((mask & 1) != 0, (mask & 2) != 0, (mask & 4) != 0, (mask & 8) != 0));
+        }
+    }
+
+    @Benchmark
+    public Object connectedGroups() {
+        return ConnectedGroups.find(blocks);
+    }
+
+    // Greedy cuboid cover of the bitmap, for the cuboid display mode
+    @Benchmark
+    public Object cuboids() {
+        return CuboidPacker.pack(bitmap);
+    }
+
+    @Benchmark
+    public void emitTransforms(Blackhole bh) {
+        for (int i = 0; i < segments.size(); i++) {
+            EdgeTransform.compute(segments, i, 0.04, transform);
+            bh.consume(transform);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.pauwma.barrierview.benchmark;
+
+import com.pauwma.barrierview.geometry.BoxTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Region tree queries over randomly placed barrier regions in an 8192 x 8192
+ * area: a 256-block range query, a point lookup, a nearest lookup, and
+ * replacing one region as a block change would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionTreeBenchmark {
+
+    private static final int AREA = 8192;
+
+    @Param({"1000", "100000"})
+    public int regions;
+
+    private final BoxTree tree = new BoxTree();
+    private final Random random = new Random(42);
+    private int[] leaves;
+
+    @Setup
+    public void setup() {
+        tree.clear();
+        leaves = new int[regions];
+        for (int i = 0; i < regions; i++) {
+            leaves[i] = insertRandom(i);
+        }
+    }
+
+    @Benchmark
+    public void range(Blackhole bh) {
+        int x = random.nextInt(AREA), z = random.nextInt(AREA);
+        tree.query(x - 256, 0, z - 256, x + 257, 320, z + 257, bh::consume);
+    }
+
+    @Benchmark
+    public void point(Blackhole bh) {
+        tree.queryPoint(random.nextInt(AREA), random.nextInt(128), random.nextInt(AREA), bh::consume);
+    }
+
+    @Benchmark
+    public int nearest() {
+        return tree.nearest(random.nextInt(AREA), random.nextInt(128), random.nextInt(AREA));
+    }
+
+    @Benchmark
+    public void replace() {
+        int i = random.nextInt(regions);
+        tree.remove(leaves[i]);
+        leaves[i] = insertRandom(i);
+    }
+
+    private int insertRandom(int value) {
+        int x = random.nextInt(AREA), y = random.nextInt(128), z = random.nextInt(AREA);
+        return tree.insert(x, y, z, x + 1 + random.nextInt(32), y + 1 + random.nextInt(16),
+                z + 1 + random.nextInt(32), value);
+    }
+}
@@ -1,12 +1,23 @@
 package com.pauwma.barrierview;
 
+import com.hypixel.hytale.assetstore.event.LoadedAssetsEvent;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import com.hypixel.hytale.server.core.universe.world.events.RemoveWorldEvent;
 import com.pauwma.barrierview.commands.BarrierColorCommand;
+import com.pauwma.barrierview.commands.BarrierIndexCommand;
 import com.pauwma.barrierview.commands.BarrierModeCommand;
+import com.pauwma.barrierview.commands.BarrierOverviewCommand;
+import com.pauwma.barrierview.commands.BarrierShapesCommand;
+import com.pauwma.barrierview.commands.BarrierStatsCommand;
 import com.pauwma.barrierview.commands.ShowBarrierCommand;
+import com.pauwma.barrierview.geometry.OutlineBuilder;
+import com.pauwma.barrierview.scan.BarrierIndex;
+import com.pauwma.barrierview.systems.BlockBreakSystem;
+import com.pauwma.barrierview.systems.BlockPlaceSystem;
 
 import javax.annotation.Nonnull;
 
@@ -21,10 +32,30 @@ public class BarrierView extends JavaPlugin {
 
     @Override
     protected void setup() {
+        BarrierViewConfig config = BarrierViewConfig.load(this.getDataDirectory());
+        BarrierViewManager.setConfig(config);
+        BarrierViewManager.setIndex(new BarrierIndex(this.getDataDirectory().resolve("index"),
+                BarrierViewManager.getLayers()));
+        LOGGER.atInfo().log("[BarrierView] Outline engine: "
+                + (config.vectorOutline && OutlineBuilder.VECTOR_SUPPORTED ? "vector" : "scalar"));
+
         // Register commands
         this.getCommandRegistry().registerCommand(new ShowBarrierCommand());
         this.getCommandRegistry().registerCommand(new BarrierModeCommand());
         this.getCommandRegistry().registerCommand(new BarrierColorCommand());
+        this.getCommandRegistry().registerCommand(new BarrierShapesCommand());
+        this.getCommandRegistry().registerCommand(new BarrierStatsCommand());
+        this.getCommandRegistry().registerCommand(new BarrierIndexCommand());
+        this.getCommandRegistry().registerCommand(new BarrierOverviewCommand());
+
+        // Keep the barrier cache in sync with placed and broken blocks
+        this.getEntityStoreRegistry().registerSystem(new BlockBreakSystem());
+        this.getEntityStoreRegistry().registerSystem(new BlockPlaceSystem());
+
+        // Numeric block ids change when block types are reloaded
+        this.getEventRegistry().register(LoadedAssetsEvent.class, BlockType.class, event -> {
+            BarrierViewManager.onBlockTypesReloaded();
+        });
 
         // Start the barrier indicator manager
         BarrierViewManager.start();
@@ -34,6 +65,11 @@ public class BarrierView extends JavaPlugin {
             BarrierViewManager.removePlayer(event.getPlayerRef().getUuid());
         });
 
+        // Drop everything cached for a world once it is removed
+        this.getEventRegistry().registerGlobal(RemoveWorldEvent.class, event -> {
+            BarrierViewManager.removeWorld(event.getWorld());
+        });
+
         LOGGER.atInfo().log("[BarrierView] Ready! Use /showbarrier to toggle, /barriermode for display mode");
     }
 
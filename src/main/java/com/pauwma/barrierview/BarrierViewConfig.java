@@ -0,0 +1,230 @@
+package com.pauwma.barrierview;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.vector.Vector3f;
+import com.pauwma.barrierview.scan.BlockLayers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Server-wide settings read from config.properties in the plugin's data
+ * directory. Missing keys fall back to their defaults, and a commented
+ * default file is written on first start.
+ */
+public class BarrierViewConfig {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final String FILE_NAME = "config.properties";
+
+    // Layer 0 always highlights barriers, in each player's own color
+    public static final String BARRIER_LAYER = "barrier";
+    private static final String BARRIER_BLOCK_ID = "Barrier";
+
+    // Color of a layer whose color is missing or invalid
+    private static final Vector3f DEFAULT_LAYER_COLOR = new Vector3f(1.0f, 1.0f, 1.0f);
+
+    // Extra block types highlighted alongside barriers, each in a fixed color
+    public static class Layer {
+        public final String name;
+        public final List<String> blockIds;
+        public final Vector3f color;
+
+        Layer(String name, List<String> blockIds, Vector3f color) {
+            this.name = name;
+            this.blockIds = blockIds;
+            this.color = color;
+        }
+    }
+
+    // Horizontal view radius in chunks around the player's chunk
+    public final int viewRadius;
+
+    // Chunks within this radius get the full outline; farther ones only group boxes
+    public final int detailRadius;
+
+    // Most wireframe shapes sent to one player per tick (4 ticks per second)
+    public final int shapeBudget;
+
+    // Most sections the background indexer probes per world per second; 0 turns indexing off
+    public final int indexBudget;
+
+    // Microseconds a world job may spend scanning sections for views; the rest goes on in later ticks.
+    // 0 removes the limit
+    public final int scanBudgetMicros;
+
+    // Reach of the overview mode in blocks, from the viewer's chunk and band center
+    public final int overviewRadius;
+
+    // Use SIMD lanes for grouped outlines when the JVM has the Vector API module
+    public final boolean vectorOutline;
+
+    // Layers after the barrier layer, in config order
+    public final List<Layer> extraLayers;
+
+    private BarrierViewConfig(Properties props) {
+        this.viewRadius = readInt(props, "view-radius", 2, 0, 8);
+        this.detailRadius = Math.min(viewRadius, readInt(props, "detail-radius", 1, 0, 8));
+        this.shapeBudget = readInt(props, "shape-budget", 256, 16, 100_000);
+        this.indexBudget = readInt(props, "index-budget", 16, 0, 1024);
+        this.scanBudgetMicros = readInt(props, "scan-budget-us", 2000, 0, 50_000);
+        this.overviewRadius = readInt(props, "overview-radius", 256, 32, 2048);
+        this.vectorOutline = readBoolean(props, "vector-outline", true);
+        this.extraLayers = readLayers(props);
+    }
+
+    // Block classification for every layer, barrier layer first
+    public BlockLayers blockLayers() {
+        List<String> names = new ArrayList<>();
+        List<List<String>> blockIds = new ArrayList<>();
+        names.add(BARRIER_LAYER);
+        blockIds.add(List.of(BARRIER_BLOCK_ID));
+        for (Layer layer : extraLayers) {
+            names.add(layer.name);
+            blockIds.add(layer.blockIds);
+        }
+        return new BlockLayers(names, blockIds);
+    }
+
+    public static BarrierViewConfig defaults() {
+        return new BarrierViewConfig(new Properties());
+    }
+
+    public static BarrierViewConfig load(Path dataDirectory) {
+        Path file = dataDirectory.resolve(FILE_NAME);
+        Properties props = new Properties();
+        try {
+            if (Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file)) {
+                    props.load(reader);
+                }
+            } else {
+                Files.createDirectories(dataDirectory);
+                try (Writer writer = Files.newBufferedWriter(file)) {
+                    writer.write(defaultFile());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[BarrierView] Could not read " + file + ", using defaults: " + e.getMessage());
+        }
+        return new BarrierViewConfig(props);
+    }
+
+    private static int readInt(Properties props, String key, int def, int min, int max) {
+        String value = props.getProperty(key);
+        if (value == null) return def;
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < min || parsed > max) {
+                LOGGER.atWarning().log("[BarrierView] " + key + "=" + parsed + " is outside " + min + ".." + max + ", clamping");
+            }
+            return Math.max(min, Math.min(max, parsed));
+        } catch (NumberFormatException e) {
+            LOGGER.atWarning().log("[BarrierView] " + key + "=" + value + " is not a number, using " + def);
+            return def;
+        }
+    }
+
+    private static List<Layer> readLayers(Properties props) {
+        List<Layer> layers = new ArrayList<>();
+        List<String> names = readList(props, "layers");
+        for (String name : names) {
+            if (name.equals(BARRIER_LAYER) || layers.stream().anyMatch(l -> l.name.equals(name))) {
+                LOGGER.atWarning().log("[BarrierView] Layer " + name + " is listed twice, skipping");
+                continue;
+            }
+            if (layers.size() + 1 >= Byte.MAX_VALUE) {
+                LOGGER.atWarning().log("[BarrierView] Too many layers, ignoring " + name + " and after");
+                break;
+            }
+            List<String> blockIds = readList(props, "layer." + name + ".blocks");
+            if (blockIds.isEmpty()) {
+                LOGGER.atWarning().log("[BarrierView] layer." + name + ".blocks is empty, skipping layer " + name);
+                continue;
+            }
+            String hex = props.getProperty("layer." + name + ".color");
+            Vector3f color = hex == null ? null : BarrierViewManager.parseHexColor(hex.trim());
+            if (color == null) {
+                LOGGER.atWarning().log("[BarrierView] layer." + name + ".color=" + hex + " is not a #RRGGBB color, using white");
+                color = DEFAULT_LAYER_COLOR;
+            }
+            layers.add(new Layer(name, blockIds, color));
+        }
+        return layers;
+    }
+
+    // Comma separated values, trimmed, blanks dropped
+    private static List<String> readList(Properties props, String key) {
+        List<String> values = new ArrayList<>();
+        String value = props.getProperty(key);
+        if (value == null) return values;
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                values.add(part.trim());
+            }
+        }
+        return values;
+    }
+
+    private static boolean readBoolean(Properties props, String key, boolean def) {
+        String value = props.getProperty(key);
+        if (value == null) return def;
+        value = value.trim();
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        LOGGER.atWarning().log("[BarrierView] " + key + "=" + value + " is not true or false, using " + def);
+        return def;
+    }
+
+    private static String defaultFile() {
+        return """
+                # BarrierView settings. Restart the server after editing.
+
+                # Horizontal view radius in chunks around the player's chunk (0-8)
+                view-radius=2
+
+                # Chunks within this radius get the full outline; farther chunks
+                # only show a box around each connected group of barriers (0-8)
+                detail-radius=1
+
+                # Most wireframe shapes sent to one player per tick (4 ticks per
+                # second). Nearest shapes go first; the rest follow on later ticks.
+                shape-budget=256
+
+                # Most chunk sections the background indexer probes per world per
+                # second (0-1024). The index lets /showbarrier skip scanning after
+                # a restart; 0 turns background indexing off.
+                index-budget=16
+
+                # Microseconds each world job may spend scanning chunk sections
+                # for players' views (0-50000). Scanning that doesn't fit goes on
+                # in later ticks, taking turns between players; 0 removes the limit.
+                scan-budget-us=2000
+
+                # Reach in blocks of the /barrieroverview mode, which draws one box
+                # per indexed barrier region instead of scanning chunks (32-2048)
+                overview-radius=256
+
+                # Compute grouped outlines on SIMD lanes. Only takes effect when the
+                # server JVM is started with --add-modules jdk.incubator.vector;
+                # otherwise the scalar path is used.
+                vector-outline=true
+
+                # Extra block types to highlight next to barriers. Each layer has a
+                # name, a comma separated list of block ids and a fixed color;
+                # barriers keep the color each player picks with /barriercolor.
+                # layers=light,trigger
+                # layer.light.blocks=Light_Block
+                # layer.light.color=#FFFF00
+                # layer.trigger.blocks=Trigger_Block,Spawn_Marker
+                # layer.trigger.color=#00FFFF
+                """;
+    }
+}
@@ -1,39 +1,70 @@
 package com.pauwma.barrierview;
 
+import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
-import com.hypixel.hytale.math.matrix.Matrix4d;
+import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Transform;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
-import com.hypixel.hytale.protocol.DebugShape;
-import com.hypixel.hytale.protocol.Packet;
-import com.hypixel.hytale.protocol.packets.player.ClearDebugShapes;
-import com.hypixel.hytale.protocol.packets.player.DisplayDebug;
-import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.modules.entity.EntityModule;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.pauwma.barrierview.geometry.BoundingBox;
+import com.pauwma.barrierview.geometry.ConnectedGroups;
+import com.pauwma.barrierview.geometry.CuboidPacker;
+import com.pauwma.barrierview.geometry.LongHashSet;
+import com.pauwma.barrierview.geometry.PackedPos;
+import com.pauwma.barrierview.geometry.SegmentList;
+import com.pauwma.barrierview.geometry.VoxelBitmap;
+import com.pauwma.barrierview.render.PacketCache;
+import com.pauwma.barrierview.render.ShapeRenderer;
+import com.pauwma.barrierview.render.ShapeStream;
+import com.pauwma.barrierview.scan.BarrierChunkCache;
+import com.pauwma.barrierview.scan.BarrierIndex;
+import com.pauwma.barrierview.scan.BarrierRegions;
+import com.pauwma.barrierview.scan.BlockLayers;
+import com.pauwma.barrierview.scan.ChunkSections;
+import com.pauwma.barrierview.scan.RetainedFrames;
+import com.pauwma.barrierview.scan.RetainedOutlines;
+import com.pauwma.barrierview.scan.ScanBudget;
+import com.pauwma.barrierview.scan.ViewBands;
+import com.pauwma.barrierview.scan.ViewFrame;
+import com.pauwma.barrierview.stats.BarrierStats;
+import com.pauwma.barrierview.stats.StatsRegistry;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class BarrierViewManager {
 
     public enum DisplayMode {
         INDIVIDUAL,
-        GROUPED
+        GROUPED,
+        // One wireframe per box of a greedy cuboid cover; solid volumes cost a single box
+        CUBOIDS,
+        // Admin view: one box per indexed barrier region within overview-radius, no chunk scanning
+        OVERVIEW
     }
 
     private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(1);
+
+    // Builds view frames from snapshots off the world threads; leaves one core for the server. Created by
+    // start() and shut down by stop(), so a reload doesn't leave its threads behind
+    private static volatile ForkJoinPool framePool;
     private static ScheduledFuture<?> updateTask;
+    private static ScheduledFuture<?> indexTask;
     private static boolean running = false;
 
     private static final Set<UUID> enabledPlayers = ConcurrentHashMap.newKeySet();
@@ -41,6 +72,42 @@ public class BarrierViewManager {
     private static final Map<UUID, DisplayMode> playerDisplayModes = new ConcurrentHashMap<>();
     private static final Map<UUID, Vector3f> playerColors = new ConcurrentHashMap<>();
     private static final Set<UUID> rainbowPlayers = ConcurrentHashMap.newKeySet();
+    private static final Map<UUID, ShapeCounts> lastShapeCounts = new ConcurrentHashMap<>();
+
+    private static final Map<UUID, ShapeStream> shapeStreams = new ConcurrentHashMap<>();
+    // Packets shared by every stream of a world; only used on that world's thread
+    private static final Map<String, PacketCache> packetCaches = new ConcurrentHashMap<>();
+    private static final Map<UUID, ViewState> viewStates = new ConcurrentHashMap<>();
+    private static final Set<String> dirtyWorlds = ConcurrentHashMap.newKeySet();
+    private static final Set<String> worldsInFlight = ConcurrentHashMap.newKeySet();
+    // Jobs per world so far, to rotate which view scans first
+    private static final Map<String, Integer> scanTurns = new ConcurrentHashMap<>();
+
+    // Movement is checked this often; a player is only rendered when something changed
+    private static final long TICK_MS = 250L;
+
+    // Stationary players are re-rendered this often so their shapes get refreshed
+    private static final long KEEP_ALIVE_MS = 3_000L;
+
+    // Rainbow players move to the next hue this often; each step re-sends their last frame in the new color,
+    // built once per world and hue by the packet cache
+    private static final long RAINBOW_STEP_MS = 500L;
+
+    // Shapes in the player's last refresh: unit edges selected, merged shapes, packets actually written,
+    // and the highlighted blocks they show
+    public static class ShapeCounts {
+        public final int unitEdges;
+        public final int shapes;
+        public final int packets;
+        public final int blocks;
+
+        ShapeCounts(int unitEdges, int shapes, int packets, int blocks) {
+            this.unitEdges = unitEdges;
+            this.shapes = shapes;
+            this.packets = packets;
+            this.blocks = blocks;
+        }
+    }
 
     // Default wireframe color (red for barriers)
     private static final Vector3f DEFAULT_COLOR = new Vector3f(1.0f, 0.0f, 0.0f);
@@ -76,14 +143,67 @@ public class BarrierViewManager {
         }
     }
 
-    // Edge thickness for wireframe
-    private static final double EDGE_THICKNESS = 0.04;
-
     // Chunk size (Hytale chunks are typically 32x32)
-    private static final int CHUNK_SIZE = 32;
+    static final int CHUNK_SIZE = BarrierChunkCache.CHUNK_SIZE;
+
+    // Highlighted block positions per chunk and layer, kept until a block in them changes; replaced with the config
+    private static volatile BarrierChunkCache chunkCache = new BarrierChunkCache(BarrierViewConfig.defaults().blockLayers());
+
+    // On-disk barrier positions; null until the plugin sets it up
+    private static volatile BarrierIndex index;
+
+    // Barrier regions of the indexed worlds, for the overview mode and region queries
+    private static volatile BarrierRegions regions;
 
-    // Barrier block ID
-    private static final String BARRIER_BLOCK_ID = "Barrier";
+    // Background indexing runs once per second and looks this many chunks around each player
+    private static final long INDEX_PASS_MS = 1000L;
+    private static final int INDEX_RADIUS = 8;
+
+    // Changed index regions are written out this often
+    private static final long INDEX_FLUSH_MS = 30_000L;
+    private static long lastIndexFlush = 0;
+
+    // Scratch bitmaps for the detail area, one per layer, reused by each frame pool worker
+    private static final ThreadLocal<VoxelBitmap[]> DETAIL_BITMAPS = ThreadLocal.withInitial(() -> new VoxelBitmap[0]);
+
+    private static volatile BarrierViewConfig config = BarrierViewConfig.defaults();
+
+    // Grouped outlines of each view's detail area, updated block by block between frames
+    private static final RetainedOutlines RETAINED_OUTLINES = new RetainedOutlines();
+
+    // Each view's last frame, handed out again while none of its sections changed
+    private static final RetainedFrames RETAINED_FRAMES = new RetainedFrames();
+
+    public static void setConfig(BarrierViewConfig newConfig) {
+        config = newConfig;
+        BarrierChunkCache cache = new BarrierChunkCache(newConfig.blockLayers());
+        cache.setIndex(index);
+        chunkCache = cache;
+        RETAINED_OUTLINES.clear();
+        RETAINED_FRAMES.clear();
+        // Layers or their colors may have changed, so last frames can't just be recolored
+        for (ViewState state : viewStates.values()) {
+            state.dirty = true;
+        }
+    }
+
+    public static BlockLayers getLayers() {
+        return chunkCache.getLayers();
+    }
+
+    // Block type assets were (re)loaded; numeric ids may have moved, so classify and scan again
+    public static void onBlockTypesReloaded() {
+        BarrierChunkCache cache = chunkCache;
+        cache.getLayers().rebuild();
+        cache.clear();
+        RETAINED_OUTLINES.clear();
+        RETAINED_FRAMES.clear();
+        dirtyWorlds.addAll(activeWorlds.keySet());
+    }
+
+    public static BarrierViewConfig getConfig() {
+        return config;
+    }
 
     public static DisplayMode getDisplayMode(UUID playerUuid) {
         return playerDisplayModes.getOrDefault(playerUuid, DisplayMode.GROUPED);
@@ -91,11 +211,13 @@ public class BarrierViewManager {
 
     public static Vector3f getColor(UUID playerUuid) {
         if (rainbowPlayers.contains(playerUuid)) {
-            return getRainbowColor();
+            ViewState state = viewStates.get(playerUuid);
+            return RAINBOW_COLORS[state != null ? state.rainbowStep : 0];
         }
         return playerColors.getOrDefault(playerUuid, DEFAULT_COLOR);
     }
 
+    // Color changes need no new frame: the next tick re-sends the player's last one in the new color
     public static void setColor(UUID playerUuid, Vector3f color) {
         rainbowPlayers.remove(playerUuid);
         playerColors.put(playerUuid, color);
@@ -118,22 +240,21 @@ public class BarrierViewManager {
         return rainbowPlayers.contains(playerUuid);
     }
 
-    // Rainbow colors array
-    private static final Vector3f[] RAINBOW_COLORS = {
-        new Vector3f(1.0f, 0.0f, 0.0f),   // Red
-        new Vector3f(1.0f, 0.5f, 0.0f),   // Orange
-        new Vector3f(1.0f, 1.0f, 0.0f),   // Yellow
-        new Vector3f(0.0f, 1.0f, 0.0f),   // Green
-        new Vector3f(0.0f, 1.0f, 1.0f),   // Cyan
-        new Vector3f(0.0f, 0.0f, 1.0f),   // Blue
-        new Vector3f(0.5f, 0.0f, 1.0f),   // Purple
-        new Vector3f(1.0f, 0.0f, 1.0f),   // Magenta
-    };
+    // Rainbow hues, evenly spaced around the color wheel; one full turn takes RAINBOW_HUES steps
+    private static final int RAINBOW_HUES = 24;
+    private static final Vector3f[] RAINBOW_COLORS = new Vector3f[RAINBOW_HUES];
 
-    private static Vector3f getRainbowColor() {
-        // Cycle through rainbow colors - changes every 1.5 seconds
-        int index = (int) ((System.currentTimeMillis() / 1500) % RAINBOW_COLORS.length);
-        return RAINBOW_COLORS[index];
+    static {
+        for (int i = 0; i < RAINBOW_HUES; i++) {
+            RAINBOW_COLORS[i] = hsvToRgb((float) i / RAINBOW_HUES, 1.0f, 1.0f);
+        }
+    }
+
+    // Move a rainbow player to the next hue once the current one has been up for RAINBOW_STEP_MS
+    private static void stepRainbow(ViewState state, long now) {
+        if (now - state.rainbowSteppedAt < RAINBOW_STEP_MS) return;
+        state.rainbowStep = (state.rainbowStep + 1) % RAINBOW_HUES;
+        state.rainbowSteppedAt = now;
     }
 
     private static Vector3f hsvToRgb(float h, float s, float v) {
@@ -188,16 +309,44 @@ public class BarrierViewManager {
         return String.format("#%02X%02X%02X", r, g, b);
     }
 
+    public static ShapeCounts getLastShapeCounts(UUID playerUuid) {
+        return lastShapeCounts.get(playerUuid);
+    }
+
     public static DisplayMode cycleDisplayMode(UUID playerUuid) {
-        DisplayMode current = getDisplayMode(playerUuid);
-        DisplayMode next = current == DisplayMode.INDIVIDUAL ? DisplayMode.GROUPED : DisplayMode.INDIVIDUAL;
+        DisplayMode next;
+        switch (getDisplayMode(playerUuid)) {
+            case INDIVIDUAL:
+                next = DisplayMode.GROUPED;
+                break;
+            case GROUPED:
+                next = DisplayMode.CUBOIDS;
+                break;
+            default:
+                next = DisplayMode.INDIVIDUAL;
+                break;
+        }
         playerDisplayModes.put(playerUuid, next);
+        markDirty(playerUuid);
         return next;
     }
 
+    // Switch between the overview and the player's previous chunk-scanning mode
+    public static boolean toggleOverview(UUID playerUuid) {
+        if (getDisplayMode(playerUuid) == DisplayMode.OVERVIEW) {
+            playerDisplayModes.put(playerUuid, DisplayMode.GROUPED);
+            markDirty(playerUuid);
+            return false;
+        }
+        playerDisplayModes.put(playerUuid, DisplayMode.OVERVIEW);
+        markDirty(playerUuid);
+        return true;
+    }
+
     public static boolean toggle(UUID playerUuid) {
         if (enabledPlayers.contains(playerUuid)) {
             enabledPlayers.remove(playerUuid);
+            viewStates.remove(playerUuid);
             return false;
         } else {
             enabledPlayers.add(playerUuid);
@@ -215,24 +364,209 @@ public class BarrierViewManager {
         }
     }
 
+    // Unloaded chunks are noticed on their next lookup, but a removed world would keep its entries until
+    // the LRU pushed them out
+    public static void removeWorld(World world) {
+        if (world == null) return;
+        String worldName = world.getName();
+        activeWorlds.remove(worldName);
+        dirtyWorlds.remove(worldName);
+        scanTurns.remove(worldName);
+        packetCaches.remove(worldName);
+        chunkCache.invalidateWorld(worldName);
+        RETAINED_OUTLINES.removeWorld(worldName);
+        RETAINED_FRAMES.removeWorld(worldName);
+    }
+
     public static void removePlayer(UUID playerUuid) {
         enabledPlayers.remove(playerUuid);
         playerDisplayModes.remove(playerUuid);
         playerColors.remove(playerUuid);
         rainbowPlayers.remove(playerUuid);
+        lastShapeCounts.remove(playerUuid);
+        shapeStreams.remove(playerUuid);
+        viewStates.remove(playerUuid);
+        StatsRegistry.removePlayer(playerUuid);
+    }
+
+    // Render this player on the next tick regardless of movement
+    private static void markDirty(UUID playerUuid) {
+        ViewState state = viewStates.get(playerUuid);
+        if (state != null) {
+            state.dirty = true;
+        }
+    }
+
+    // Called from the block place/break systems before the change is applied; the block is read again
+    // once it has been, only its cached or indexed section is patched, and players who can see it are
+    // re-rendered right away
+    public static void onBlockChanged(World world, int x, int y, int z) {
+        if (world == null) return;
+        BarrierChunkCache cache = chunkCache;
+        try {
+            world.execute(() -> {
+                try {
+                    if (cache.updateBlock(world, x, y, z)) {
+                        pushBlockChange(world, x, y, z);
+                    }
+                } catch (Exception e) {
+                    StatsRegistry.world(world.getName()).recordError(e);
+                }
+            });
+        } catch (Exception e) {
+            // World may be shutting down; fall back to scanning the section again
+            cache.invalidateBlock(world.getName(), x, y, z);
+            dirtyWorlds.add(world.getName());
+        }
+    }
+
+    // On the world thread, after a highlighted block changed: render the enabled players whose view covers it
+    // now instead of on the next tick. If the world still has frames in flight (built from sections read
+    // before the change) they are only marked dirty
+    private static void pushBlockChange(World world, int x, int y, int z) {
+        int chunkX = Math.floorDiv(x, CHUNK_SIZE);
+        int chunkZ = Math.floorDiv(z, CHUNK_SIZE);
+        int radius = config.viewRadius;
+        Set<UUID> covering = new HashSet<>();
+        for (PlayerRef playerRef : world.getPlayerRefs()) {
+            if (playerRef == null || !enabledPlayers.contains(playerRef.getUuid())) continue;
+            ViewState state = viewStates.get(playerRef.getUuid());
+            if (state == null) continue;
+            if (getDisplayMode(playerRef.getUuid()) == DisplayMode.OVERVIEW) {
+                // Drawn from the region tree, which catches up with the index on its own schedule
+                state.dirty = true;
+                continue;
+            }
+            if (Math.abs(state.chunkX - chunkX) <= radius && Math.abs(state.chunkZ - chunkZ) <= radius
+                    && y >= ViewBands.bandMinY(state.band) && y <= ViewBands.bandMaxY(state.band)) {
+                covering.add(playerRef.getUuid());
+            }
+        }
+        if (covering.isEmpty()) return;
+
+        if (!worldsInFlight.add(world.getName())) {
+            for (UUID playerUuid : covering) {
+                markDirty(playerUuid);
+            }
+            return;
+        }
+
+        BarrierStats stats = StatsRegistry.world(world.getName());
+        long now = System.currentTimeMillis();
+        for (UUID playerUuid : covering) {
+            ViewState state = viewStates.get(playerUuid);
+            if (state != null) {
+                state.dirty = false;
+                state.lastRefresh = now;
+            }
+        }
+        long start = System.nanoTime();
+        boolean handedOff = false;
+        try {
+            handedOff = renderWorld(world, covering, stats);
+        } finally {
+            stats.recordWorldJob(System.nanoTime() - start);
+            if (!handedOff) {
+                worldsInFlight.remove(world.getName());
+            }
+        }
+    }
+
+    // What the on-disk index knows about a world, and the barrier regions at and around a point
+    public static class IndexSummary {
+        public final int chunks;
+        public final long barriers;
+        public final int regions;
+        public final int regionsInRange;
+        public final BoundingBox containing;
+        public final BoundingBox nearest;
+
+        IndexSummary(int chunks, long barriers, int regions, int regionsInRange,
+                     BoundingBox containing, BoundingBox nearest) {
+            this.chunks = chunks;
+            this.barriers = barriers;
+            this.regions = regions;
+            this.regionsInRange = regionsInRange;
+            this.containing = containing;
+            this.nearest = nearest;
+        }
+    }
+
+    // Counts walk every indexed chunk of the world and the region tree may have to be built first, so the
+    // summary is put together on the frame pool and handed to reply on the world thread. False if indexing is off
+    public static boolean summarizeIndex(World world, int x, int y, int z, Consumer<IndexSummary> reply) {
+        BarrierIndex barrierIndex = index;
+        BarrierRegions barrierRegions = regions;
+        ForkJoinPool pool = framePool;
+        if (barrierIndex == null || barrierRegions == null || pool == null) return false;
+
+        String worldName = world.getName();
+        try {
+            pool.execute(() -> {
+                try {
+                    IndexSummary summary = summarizeIndex(barrierIndex, barrierRegions, worldName, x, y, z);
+                    world.execute(() -> reply.accept(summary));
+                } catch (Exception e) {
+                    // World may be shutting down
+                    StatsRegistry.world(worldName).recordError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Stopped in the meantime
+            return false;
+        }
+        return true;
+    }
+
+    private static IndexSummary summarizeIndex(BarrierIndex barrierIndex, BarrierRegions barrierRegions,
+                                               String worldName, int x, int y, int z) {
+        int[] chunks = {0};
+        long[] barriers = {0};
+        barrierIndex.forEachChunk(worldName, (chunkX, chunkZ, sections) -> {
+            chunks[0]++;
+            for (short[][] section : sections) {
+                // Layer 0 holds the barriers
+                if (section != null) barriers[0] += section[0].length;
+            }
+        });
+
+        int radius = config.overviewRadius;
+        int inRange = barrierRegions.within(worldName, x - radius, y - radius, z - radius,
+                x + radius + 1, y + radius + 1, z + radius + 1).size();
+        return new IndexSummary(chunks[0], barriers[0], barrierRegions.count(worldName), inRange,
+                barrierRegions.containing(worldName, x, y, z), barrierRegions.nearest(worldName, x, y, z));
+    }
+
+    public static void setIndex(BarrierIndex barrierIndex) {
+        index = barrierIndex;
+        regions = barrierIndex != null ? new BarrierRegions(barrierIndex) : null;
+        chunkCache.setIndex(barrierIndex);
     }
 
     public static void start() {
         if (running) return;
         running = true;
+        framePool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        StatsRegistry.start();
+        lastIndexFlush = System.currentTimeMillis();
+
+        indexTask = SCHEDULER.scheduleAtFixedRate(() -> {
+            try {
+                updateIndex();
+            } catch (Exception e) {
+                StatsRegistry.global().recordError(e);
+                System.err.println("[BarrierView] Error updating barrier index: " + e.getMessage());
+            }
+        }, INDEX_PASS_MS, INDEX_PASS_MS, TimeUnit.MILLISECONDS);
 
         updateTask = SCHEDULER.scheduleAtFixedRate(() -> {
             try {
                 updateBarrierIndicators();
             } catch (Exception e) {
+                StatsRegistry.global().recordError(e);
                 System.err.println("[BarrierView] Error updating indicators: " + e.getMessage());
             }
-        }, 0L, 1500L, TimeUnit.MILLISECONDS);
+        }, 0L, TICK_MS, TimeUnit.MILLISECONDS);
     }
 
     public static void stop() {
@@ -241,24 +575,70 @@ public class BarrierViewManager {
             updateTask.cancel(false);
             updateTask = null;
         }
+        if (indexTask != null) {
+            indexTask.cancel(false);
+            indexTask = null;
+        }
+        ForkJoinPool pool = framePool;
+        if (pool != null) {
+            // Frames still queued are dropped along with the state below they were built for
+            pool.shutdownNow();
+            framePool = null;
+        }
+        BarrierIndex barrierIndex = index;
+        if (barrierIndex != null) {
+            barrierIndex.flush();
+            barrierIndex.close();
+        }
+        BarrierRegions barrierRegions = regions;
+        if (barrierRegions != null) {
+            barrierRegions.clear();
+        }
         for (World world : activeWorlds.values()) {
             clearDebugShapes(world);
         }
         activeWorlds.clear();
+        chunkCache.clear();
+        RETAINED_OUTLINES.clear();
+        RETAINED_FRAMES.clear();
         enabledPlayers.clear();
         playerDisplayModes.clear();
         playerColors.clear();
         rainbowPlayers.clear();
+        lastShapeCounts.clear();
+        shapeStreams.clear();
+        for (PacketCache cache : packetCaches.values()) {
+            cache.clear();
+        }
+        packetCaches.clear();
+        viewStates.clear();
+        dirtyWorlds.clear();
+        worldsInFlight.clear();
+        scanTurns.clear();
+        StatsRegistry.stop();
     }
 
     private static void updateBarrierIndicators() {
         if (activeWorlds.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        RETAINED_OUTLINES.expire(now);
+        RETAINED_FRAMES.expire(now);
 
         for (World world : activeWorlds.values()) {
-            Collection<PlayerRef> playerRefs = world.getPlayerRefs();
-            if (playerRefs.isEmpty()) continue;
+            BarrierStats stats = StatsRegistry.world(world.getName());
 
-            for (PlayerRef playerRef : playerRefs) {
+            // Last tick's job hasn't finished; don't pile more work onto the world thread
+            if (worldsInFlight.contains(world.getName())) {
+                stats.recordOverrun();
+                continue;
+            }
+
+            boolean worldDirty = dirtyWorlds.remove(world.getName());
+            Set<UUID> due = null;
+            Set<UUID> recolor = null;
+            Set<UUID> streaming = null;
+
+            for (PlayerRef playerRef : world.getPlayerRefs()) {
                 try {
                     if (playerRef == null) continue;
 
@@ -271,369 +651,620 @@ public class BarrierViewManager {
                     Vector3d position = transform.getPosition();
                     if (position == null) continue;
 
-                    int playerX = (int) Math.floor(position.x);
-                    int playerY = (int) Math.floor(position.y);
-                    int playerZ = (int) Math.floor(position.z);
-
-                    int playerChunkX = Math.floorDiv(playerX, CHUNK_SIZE);
-                    int playerChunkZ = Math.floorDiv(playerZ, CHUNK_SIZE);
-
-                    DisplayMode mode = getDisplayMode(playerUuid);
-
-                    world.execute(() -> {
-                        try {
-                            scanAndRenderBarriers(playerRef, world, playerX, playerY, playerZ, playerChunkX, playerChunkZ, mode);
-                        } catch (Exception e) {
-                            // Silently ignore
+                    ViewState state = viewStates.computeIfAbsent(playerUuid, uuid -> new ViewState());
+                    if (rainbowPlayers.contains(playerUuid)) {
+                        stepRainbow(state, now);
+                    }
+                    boolean moved = state.moveTo(
+                            (int) Math.floor(position.x),
+                            (int) Math.floor(position.y),
+                            (int) Math.floor(position.z));
+
+                    if (moved || worldDirty || state.dirty || now - state.lastRefresh >= KEEP_ALIVE_MS) {
+                        state.dirty = false;
+                        state.lastRefresh = now;
+                        if (due == null) due = new HashSet<>();
+                        due.add(playerUuid);
+                    } else if (state.frame != null && state.colorChanged(getColor(playerUuid))) {
+                        // Same geometry in a new color (a color command or a rainbow step)
+                        if (recolor == null) recolor = new HashSet<>();
+                        recolor.add(playerUuid);
+                    } else {
+                        // Nothing changed, but shapes from an earlier render are still queued
+                        ShapeStream stream = shapeStreams.get(playerUuid);
+                        if (stream != null && stream.hasPending()) {
+                            if (streaming == null) streaming = new HashSet<>();
+                            streaming.add(playerUuid);
                         }
-                    });
-
+                    }
                 } catch (Exception e) {
                     // Player may have disconnected
+                    stats.recordError(e);
                 }
             }
-        }
-    }
 
-    private static void scanAndRenderBarriers(PlayerRef playerRef, World world,
-                                               int playerX, int playerY, int playerZ,
-                                               int playerChunkX, int playerChunkZ,
-                                               DisplayMode mode) {
-        Store<EntityStore> store = world.getEntityStore().getStore();
-        if (store == null) return;
+            if (due == null && recolor == null && streaming == null) continue;
+            Set<UUID> players = due != null ? due : Collections.emptySet();
+            Set<UUID> recolorOnly = recolor != null ? recolor : Collections.emptySet();
+            Set<UUID> flushOnly = streaming != null ? streaming : Collections.emptySet();
 
-        Ref<EntityStore> ref = playerRef.getReference();
-        if (ref == null) return;
+            // One job per world per tick; it resolves every due viewer and snapshots their views on the world
+            // thread, and the world stays in flight until the frames built from them have been sent
+            worldsInFlight.add(world.getName());
+            try {
+                world.execute(() -> {
+                    long start = System.nanoTime();
+                    boolean handedOff = false;
+                    try {
+                        flushStreams(world, flushOnly, stats);
+                        recolorStreams(world, recolorOnly, stats);
+                        handedOff = renderWorld(world, players, stats);
+                    } catch (Exception e) {
+                        // World may be shutting down
+                        stats.recordError(e);
+                    } finally {
+                        stats.recordWorldJob(System.nanoTime() - start);
+                        if (!handedOff) {
+                            worldsInFlight.remove(world.getName());
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                worldsInFlight.remove(world.getName());
+                stats.recordError(e);
+            }
+        }
+    }
 
-        TransformComponent transformComponent = store.getComponent(ref, EntityModule.get().getTransformComponentType());
-        if (transformComponent == null) return;
+    // Index loaded chunks near players a few sections at a time, and write changes out periodically
+    private static void updateIndex() {
+        BarrierIndex barrierIndex = index;
+        if (barrierIndex == null) return;
 
-        WorldChunk chunk = transformComponent.getChunk();
-        if (chunk == null) return;
+        long now = System.currentTimeMillis();
+        if (now - lastIndexFlush >= INDEX_FLUSH_MS) {
+            lastIndexFlush = now;
+            barrierIndex.flush();
+        }
 
-        // Collect all barrier positions
-        Set<BlockPos> barrierPositions = new HashSet<>();
+        // Catch region trees up here, so overview renders on the world thread find them ready
+        BarrierRegions barrierRegions = regions;
+        if (barrierRegions != null) {
+            for (String worldName : activeWorlds.keySet()) {
+                barrierRegions.update(worldName);
+            }
+        }
 
-        int chunkMinX = playerChunkX * CHUNK_SIZE;
-        int chunkMaxX = chunkMinX + CHUNK_SIZE - 1;
-        int chunkMinZ = playerChunkZ * CHUNK_SIZE;
-        int chunkMaxZ = chunkMinZ + CHUNK_SIZE - 1;
+        int budget = config.indexBudget;
+        if (budget <= 0) return;
 
-        int minY = Math.max(0, playerY - 32);
-        int maxY = Math.min(255, playerY + 32);
+        for (World world : activeWorlds.values()) {
+            // Rendering has priority; skip the pass while the world is still busy with it
+            if (worldsInFlight.contains(world.getName())) continue;
+
+            List<int[]> centers = new ArrayList<>();
+            for (PlayerRef playerRef : world.getPlayerRefs()) {
+                if (playerRef == null) continue;
+                Transform transform = playerRef.getTransform();
+                if (transform == null || transform.getPosition() == null) continue;
+                Vector3d position = transform.getPosition();
+                centers.add(new int[]{
+                        Math.floorDiv((int) Math.floor(position.x), CHUNK_SIZE),
+                        Math.floorDiv((int) Math.floor(position.z), CHUNK_SIZE)});
+            }
+            if (centers.isEmpty()) continue;
 
-        for (int x = chunkMinX; x <= chunkMaxX; x++) {
-            for (int z = chunkMinZ; z <= chunkMaxZ; z++) {
-                for (int y = minY; y <= maxY; y++) {
+            BarrierStats stats = StatsRegistry.world(world.getName());
+            try {
+                world.execute(() -> {
                     try {
-                        BlockType blockType = chunk.getBlockType(x, y, z);
-                        if (blockType != null && BARRIER_BLOCK_ID.equals(blockType.getId())) {
-                            barrierPositions.add(new BlockPos(x, y, z));
-                        }
+                        indexAround(world, centers, budget);
                     } catch (Exception e) {
-                        // Block access failed
+                        // World may be shutting down
+                        stats.recordError(e);
                     }
-                }
+                });
+            } catch (Exception e) {
+                stats.recordError(e);
             }
         }
+    }
 
-        if (barrierPositions.isEmpty()) return;
-
-        Vector3f playerColor = getColor(playerRef.getUuid());
-        com.hypixel.hytale.protocol.Vector3f protoColor = new com.hypixel.hytale.protocol.Vector3f(
-                playerColor.x, playerColor.y, playerColor.z
-        );
-
-        if (mode == DisplayMode.INDIVIDUAL) {
-            // Render individual wireframes (all 12 edges per block)
-            for (BlockPos pos : barrierPositions) {
-                renderWireframeBox(playerRef, pos.x, pos.y, pos.z, pos.x + 1, pos.y + 1, pos.z + 1, protoColor);
+    // Nearest chunks first, so the area players are most likely to look at is indexed first
+    private static void indexAround(World world, List<int[]> centers, int budget) {
+        for (int ring = 0; ring <= INDEX_RADIUS && budget > 0; ring++) {
+            for (int[] center : centers) {
+                for (int dx = -ring; dx <= ring && budget > 0; dx++) {
+                    for (int dz = -ring; dz <= ring && budget > 0; dz++) {
+                        if (Math.max(Math.abs(dx), Math.abs(dz)) != ring) continue;
+                        int chunkX = center[0] + dx;
+                        int chunkZ = center[1] + dz;
+                        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunk(chunkX, chunkZ));
+                        if (chunk == null) continue;
+                        budget -= chunkCache.indexChunk(world, chunk, chunkX, chunkZ, budget);
+                    }
+                }
             }
-        } else {
-            // Render outline only - edges where there's no adjacent barrier
-            renderOutline(playerRef, barrierPositions, protoColor);
         }
     }
 
-    private static void renderOutline(PlayerRef playerRef, Set<BlockPos> barrierPositions,
-                                       com.hypixel.hytale.protocol.Vector3f protoColor) {
-        // Collect all unique edges and check each one
-        Set<EdgePos> drawnEdges = new HashSet<>();
-
-        for (BlockPos pos : barrierPositions) {
-            int x = pos.x;
-            int y = pos.y;
-            int z = pos.z;
-
-            // Check all 12 edges of this block
-            // Vertical edges (along Y axis) - check 4 blocks around each edge in XZ plane
-            checkAndDrawVerticalEdge(playerRef, barrierPositions, drawnEdges, x, y, z, protoColor);     // -X,-Z corner
-            checkAndDrawVerticalEdge(playerRef, barrierPositions, drawnEdges, x+1, y, z, protoColor);   // +X,-Z corner
-            checkAndDrawVerticalEdge(playerRef, barrierPositions, drawnEdges, x, y, z+1, protoColor);   // -X,+Z corner
-            checkAndDrawVerticalEdge(playerRef, barrierPositions, drawnEdges, x+1, y, z+1, protoColor); // +X,+Z corner
-
-            // Horizontal edges along X axis - check 4 blocks around each edge in YZ plane
-            checkAndDrawXEdge(playerRef, barrierPositions, drawnEdges, x, y, z, protoColor);     // -Y,-Z corner
-            checkAndDrawXEdge(playerRef, barrierPositions, drawnEdges, x, y+1, z, protoColor);   // +Y,-Z corner
-            checkAndDrawXEdge(playerRef, barrierPositions, drawnEdges, x, y, z+1, protoColor);   // -Y,+Z corner
-            checkAndDrawXEdge(playerRef, barrierPositions, drawnEdges, x, y+1, z+1, protoColor); // +Y,+Z corner
-
-            // Horizontal edges along Z axis - check 4 blocks around each edge in XY plane
-            checkAndDrawZEdge(playerRef, barrierPositions, drawnEdges, x, y, z, protoColor);     // -X,-Y corner
-            checkAndDrawZEdge(playerRef, barrierPositions, drawnEdges, x+1, y, z, protoColor);   // +X,-Y corner
-            checkAndDrawZEdge(playerRef, barrierPositions, drawnEdges, x, y+1, z, protoColor);   // -X,+Y corner
-            checkAndDrawZEdge(playerRef, barrierPositions, drawnEdges, x+1, y+1, z, protoColor); // +X,+Y corner
+    // Continue streaming queued shapes for players whose view didn't change
+    private static void flushStreams(World world, Set<UUID> players, BarrierStats stats) {
+        if (players.isEmpty()) return;
+        int budget = config.shapeBudget;
+        PacketCache cache = packetCache(world);
+        for (PlayerRef playerRef : world.getPlayerRefs()) {
+            if (playerRef == null || !players.contains(playerRef.getUuid())) continue;
+            ShapeStream stream = shapeStreams.get(playerRef.getUuid());
+            if (stream != null && enabledPlayers.contains(playerRef.getUuid())) {
+                int packets = stream.flush(playerRef, cache, budget);
+                stats.recordPackets(packets);
+                stats.recordPacketsBuilt(stream.getLastBuiltCount());
+                StatsRegistry.player(playerRef.getUuid(), playerRef.getUsername()).recordPackets(packets);
+            }
         }
     }
 
-    // Check if vertical edge at (ex, ey, ez) should be drawn
-    // Edge goes from (ex, ey, ez) to (ex, ey+1, ez)
-    // Check the 4 blocks around it in XZ plane
-    private static void checkAndDrawVerticalEdge(PlayerRef playerRef, Set<BlockPos> barriers,
-                                                  Set<EdgePos> drawn, int ex, int ey, int ez,
-                                                  com.hypixel.hytale.protocol.Vector3f color) {
-        EdgePos edge = new EdgePos(ex, ey, ez, 'Y');
-        if (drawn.contains(edge)) return;
-
-        // 4 blocks around this vertical edge
-        boolean a = barriers.contains(new BlockPos(ex - 1, ey, ez - 1));
-        boolean b = barriers.contains(new BlockPos(ex, ey, ez - 1));
-        boolean c = barriers.contains(new BlockPos(ex - 1, ey, ez));
-        boolean d = barriers.contains(new BlockPos(ex, ey, ez));
+    // Re-send each player's last frame in their current colors; nothing is scanned or outlined
+    private static void recolorStreams(World world, Set<UUID> players, BarrierStats stats) {
+        if (players.isEmpty()) return;
+        List<BarrierViewConfig.Layer> extraLayers = config.extraLayers;
+        PacketCache cache = packetCache(world);
+        long now = System.currentTimeMillis();
+        for (PlayerRef playerRef : world.getPlayerRefs()) {
+            try {
+                if (playerRef == null || !players.contains(playerRef.getUuid())) continue;
+                UUID playerUuid = playerRef.getUuid();
+                ViewState state = viewStates.get(playerUuid);
+                if (state == null || !enabledPlayers.contains(playerUuid)) continue;
+                ViewFrame frame = state.frame;
+                if (frame == null || !state.sameLayers(extraLayers)) {
+                    // The config changed since the frame was built; render it again instead
+                    state.dirty = true;
+                    continue;
+                }
 
-        if (shouldDrawEdge(a, b, c, d)) {
-            drawn.add(edge);
-            renderEdge(playerRef, ex, ey + 0.5, ez, EDGE_THICKNESS, 1.0, EDGE_THICKNESS, color);
+                Transform transform = playerRef.getTransform();
+                if (transform == null || transform.getPosition() == null) continue;
+                Vector3d position = transform.getPosition();
+
+                com.hypixel.hytale.protocol.Vector3f[] layerColors =
+                        state.layerColors(getColor(playerUuid), extraLayers);
+                ShapeStream stream = shapeStreams.computeIfAbsent(playerUuid, uuid -> new ShapeStream());
+                int packets = stream.sync(playerRef, cache, frame.segments, layerColors, now,
+                        position.x, position.y, position.z, config.shapeBudget);
+                stats.recordRecolor();
+                stats.recordPackets(packets);
+                stats.recordPacketsBuilt(stream.getLastBuiltCount());
+                StatsRegistry.player(playerUuid, playerRef.getUsername()).recordPackets(packets);
+            } catch (Exception e) {
+                // Player may have disconnected
+                stats.recordError(e);
+            }
         }
     }
 
-    // Check if X-axis edge at (ex, ey, ez) should be drawn
-    // Edge goes from (ex, ey, ez) to (ex+1, ey, ez)
-    // Check the 4 blocks around it in YZ plane
-    private static void checkAndDrawXEdge(PlayerRef playerRef, Set<BlockPos> barriers,
-                                           Set<EdgePos> drawn, int ex, int ey, int ez,
-                                           com.hypixel.hytale.protocol.Vector3f color) {
-        EdgePos edge = new EdgePos(ex, ey, ez, 'X');
-        if (drawn.contains(edge)) return;
+    // Returns true when frames are being built on the frame pool; the world leaves worldsInFlight once they are sent
+    private static boolean renderWorld(World world, Set<UUID> players, BarrierStats stats) {
+        if (players.isEmpty()) return false;
+        Store<EntityStore> store = world.getEntityStore().getStore();
+        if (store == null) return false;
+        // Stopped while this job was queued
+        ForkJoinPool pool = framePool;
+        if (pool == null) return false;
+
+        // Resolve every due player once, then handle them grouped by view
+        ComponentType<EntityStore, TransformComponent> transformType = EntityModule.get().getTransformComponentType();
+        List<Viewer> viewers = new ArrayList<>();
+        for (PlayerRef playerRef : world.getPlayerRefs()) {
+            try {
+                if (playerRef == null || !players.contains(playerRef.getUuid())) continue;
 
-        // 4 blocks around this X edge
-        boolean a = barriers.contains(new BlockPos(ex, ey - 1, ez - 1));
-        boolean b = barriers.contains(new BlockPos(ex, ey, ez - 1));
-        boolean c = barriers.contains(new BlockPos(ex, ey - 1, ez));
-        boolean d = barriers.contains(new BlockPos(ex, ey, ez));
+                // Player may have toggled off while this task was queued
+                ViewState state = viewStates.get(playerRef.getUuid());
+                if (state == null || !enabledPlayers.contains(playerRef.getUuid())) continue;
 
-        if (shouldDrawEdge(a, b, c, d)) {
-            drawn.add(edge);
-            renderEdge(playerRef, ex + 0.5, ey, ez, 1.0, EDGE_THICKNESS, EDGE_THICKNESS, color);
-        }
-    }
+                Ref<EntityStore> ref = playerRef.getReference();
+                if (ref == null) continue;
 
-    // Check if Z-axis edge at (ex, ey, ez) should be drawn
-    // Edge goes from (ex, ey, ez) to (ex, ey, ez+1)
-    // Check the 4 blocks around it in XY plane
-    private static void checkAndDrawZEdge(PlayerRef playerRef, Set<BlockPos> barriers,
-                                           Set<EdgePos> drawn, int ex, int ey, int ez,
-                                           com.hypixel.hytale.protocol.Vector3f color) {
-        EdgePos edge = new EdgePos(ex, ey, ez, 'Z');
-        if (drawn.contains(edge)) return;
+                TransformComponent transformComponent = store.getComponent(ref, transformType);
+                if (transformComponent == null) continue;
 
-        // 4 blocks around this Z edge
-        boolean a = barriers.contains(new BlockPos(ex - 1, ey - 1, ez));
-        boolean b = barriers.contains(new BlockPos(ex, ey - 1, ez));
-        boolean c = barriers.contains(new BlockPos(ex - 1, ey, ez));
-        boolean d = barriers.contains(new BlockPos(ex, ey, ez));
+                WorldChunk chunk = transformComponent.getChunk();
+                Vector3d position = transformComponent.getPosition();
+                if (chunk == null || position == null) continue;
 
-        if (shouldDrawEdge(a, b, c, d)) {
-            drawn.add(edge);
-            renderEdge(playerRef, ex, ey, ez + 0.5, EDGE_THICKNESS, EDGE_THICKNESS, 1.0, color);
+                viewers.add(new Viewer(playerRef, chunk, position.x, position.y, position.z,
+                        Math.floorDiv((int) Math.floor(position.x), CHUNK_SIZE),
+                        Math.floorDiv((int) Math.floor(position.z), CHUNK_SIZE),
+                        state.band,
+                        getDisplayMode(playerRef.getUuid())));
+            } catch (Exception e) {
+                // Player may have disconnected
+                stats.recordError(e);
+            }
         }
-    }
 
-    // Determine if edge should be drawn based on the 4 blocks around it
-    // a,b,c,d form a 2x2 grid: a-b / c-d (where a-d and b-c are diagonals)
-    private static boolean shouldDrawEdge(boolean a, boolean b, boolean c, boolean d) {
-        int count = (a ? 1 : 0) + (b ? 1 : 0) + (c ? 1 : 0) + (d ? 1 : 0);
-
-        if (count == 0 || count == 4) {
-            // No blocks or completely surrounded - don't draw
-            return false;
-        } else if (count == 1 || count == 3) {
-            // Single block corner or 3-block concave corner - draw
-            return true;
-        } else {
-            // count == 2: draw only if diagonal, not if adjacent
-            return (a && d && !b && !c) || (b && c && !a && !d);
+        // One snapshot per chunk and Y-band; other players in the same view share its frame
+        BarrierChunkCache cache = chunkCache;
+        viewers.sort(Viewer.BY_VIEW);
+        List<ViewSnapshot> snapshots = new ArrayList<>();
+        ViewSnapshot current = null;
+        for (Viewer viewer : viewers) {
+            if (current != null && Viewer.BY_VIEW.compare(current.viewers.get(0), viewer) == 0) {
+                current.viewers.add(viewer);
+                stats.recordSharedViewHit();
+                continue;
+            }
+            current = new ViewSnapshot(world.getName(), viewer, config.detailRadius, cache.getLayers().count());
+            current.viewers.add(viewer);
+            snapshots.add(current);
         }
+        if (snapshots.isEmpty()) return false;
+        snapshotViews(world, cache, snapshots, new ScanBudget(config.scanBudgetMicros), stats);
+        if (snapshots.isEmpty()) return false;
+
+        // Outline, merging and packing run in parallel; the world thread only sends the result
+        CompletableFuture<?>[] builds = new CompletableFuture<?>[snapshots.size()];
+        for (int i = 0; i < builds.length; i++) {
+            ViewSnapshot snapshot = snapshots.get(i);
+            builds[i] = CompletableFuture.runAsync(() -> {
+                long start = System.nanoTime();
+                snapshot.frame = buildFrame(snapshot);
+                stats.recordFrame(System.nanoTime() - start);
+            }, pool);
+        }
+        CompletableFuture.allOf(builds).whenComplete((ignored, error) -> {
+            if (error != null) {
+                // Frames that did build are still sent
+                stats.recordError(error.getCause() != null ? error.getCause() : error);
+            }
+            try {
+                world.execute(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        emitFrames(snapshots, packetCache(world), stats);
+                    } finally {
+                        stats.recordWorldJob(System.nanoTime() - start);
+                        worldsInFlight.remove(world.getName());
+                    }
+                });
+            } catch (Exception e) {
+                // World may be shutting down
+                worldsInFlight.remove(world.getName());
+                stats.recordError(e);
+            }
+        });
+        return true;
     }
 
-    // Helper class for edge positions
-    private static class EdgePos {
-        final int x, y, z;
-        final char axis; // 'X', 'Y', or 'Z'
-
-        EdgePos(int x, int y, int z, char axis) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.axis = axis;
+    // Copy the cached sections each view needs, scanning missing or stale ones on the world thread within
+    // budget. Views take turns chunk ring by chunk ring, starting with a different view every job, so when the
+    // budget runs out every player has their nearest chunks and nobody is always last. Viewers of a view that
+    // had sections deferred are rendered again next tick, which carries on from what is cached by then
+    private static void snapshotViews(World world, BarrierChunkCache cache, List<ViewSnapshot> snapshots,
+                                      ScanBudget budget, BarrierStats stats) {
+        int count = snapshots.size();
+        int first = Math.floorMod(scanTurns.merge(world.getName(), 1, Integer::sum), count);
+        List<ViewSnapshot> failed = new ArrayList<>();
+        for (int ring = 0; ring <= config.viewRadius; ring++) {
+            for (int turn = 0; turn < count; turn++) {
+                ViewSnapshot snapshot = snapshots.get((first + turn) % count);
+                if (snapshot.mode == DisplayMode.OVERVIEW || failed.contains(snapshot)) continue;
+                int deferred = budget.deferred();
+                try {
+                    snapshotRing(world, cache, snapshot, ring, budget);
+                } catch (Exception e) {
+                    // Chunk may have unloaded
+                    failed.add(snapshot);
+                    stats.recordError(e);
+                }
+                if (budget.deferred() > deferred) {
+                    snapshot.incomplete = true;
+                }
+            }
         }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof EdgePos)) return false;
-            EdgePos edgePos = (EdgePos) o;
-            return x == edgePos.x && y == edgePos.y && z == edgePos.z && axis == edgePos.axis;
+        snapshots.removeAll(failed);
+        for (ViewSnapshot snapshot : snapshots) {
+            if (!snapshot.incomplete) continue;
+            for (Viewer viewer : snapshot.viewers) {
+                markDirty(viewer.playerRef.getUuid());
+            }
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(x, y, z, axis);
+    // Chunks of the view on the square ring this many chunks out from its center
+    private static void snapshotRing(World world, BarrierChunkCache cache, ViewSnapshot snapshot, int ring,
+                                     ScanBudget budget) {
+        Viewer viewer = snapshot.viewers.get(0);
+        for (int dx = -ring; dx <= ring; dx++) {
+            for (int dz = -ring; dz <= ring; dz++) {
+                if (Math.max(Math.abs(dx), Math.abs(dz)) != ring) continue;
+                int chunkX = snapshot.centerX + dx;
+                int chunkZ = snapshot.centerZ + dz;
+                WorldChunk chunk = ring == 0
+                        ? viewer.chunk
+                        : world.getChunkIfInMemory(ChunkUtil.indexChunk(chunkX, chunkZ));
+                if (chunk == null) continue;
+                snapshot.chunks.add(new ChunkSections(chunkX, chunkZ, ring <= snapshot.detailRadius,
+                        cache.sections(world, chunk, chunkX, chunkZ, snapshot.minY, snapshot.maxY, budget)));
+            }
         }
     }
 
-    private static List<BoundingBox> findConnectedGroups(Set<BlockPos> positions) {
-        List<BoundingBox> groups = new ArrayList<>();
-        Set<BlockPos> visited = new HashSet<>();
-
-        for (BlockPos start : positions) {
-            if (visited.contains(start)) continue;
+    // Back on the world thread: send every built frame to the viewers that share it
+    private static void emitFrames(List<ViewSnapshot> snapshots, PacketCache cache, BarrierStats stats) {
+        for (ViewSnapshot snapshot : snapshots) {
+            if (snapshot.frame == null) continue;
+            for (Viewer viewer : snapshot.viewers) {
+                try {
+                    // Player may have toggled off while the frame was built
+                    if (!enabledPlayers.contains(viewer.playerRef.getUuid())) continue;
+                    renderViewer(viewer, snapshot.frame, cache, stats);
+                } catch (Exception e) {
+                    // Player may have disconnected
+                    stats.recordError(e);
+                }
+            }
+        }
+    }
 
-            // BFS to find all connected blocks
-            Set<BlockPos> group = new HashSet<>();
-            Queue<BlockPos> queue = new LinkedList<>();
-            queue.add(start);
+    private static void renderViewer(Viewer viewer, ViewFrame frame, PacketCache cache, BarrierStats stats) {
+        PlayerRef playerRef = viewer.playerRef;
+
+        // Barriers in the player's color, other layers in their configured colors
+        ViewState state = viewStates.computeIfAbsent(playerRef.getUuid(), uuid -> new ViewState());
+        com.hypixel.hytale.protocol.Vector3f[] layerColors =
+                state.layerColors(getColor(playerRef.getUuid()), config.extraLayers);
+
+        ShapeStream stream = shapeStreams.computeIfAbsent(playerRef.getUuid(), uuid -> new ShapeStream());
+        int packets = stream.sync(playerRef, cache, frame.segments, layerColors, System.currentTimeMillis(),
+                viewer.x, viewer.y, viewer.z, config.shapeBudget);
+        state.frame = frame;
+        lastShapeCounts.put(playerRef.getUuid(),
+                new ShapeCounts(frame.unitEdges, frame.segments.size(), packets, frame.blocks));
+        stats.recordRender(frame.unitEdges, frame.segments.size(), packets);
+        stats.recordPacketsBuilt(stream.getLastBuiltCount());
+        StatsRegistry.player(playerRef.getUuid(), playerRef.getUsername())
+                .recordRender(frame.unitEdges, frame.segments.size(), packets);
+    }
 
-            while (!queue.isEmpty()) {
-                BlockPos current = queue.poll();
-                if (visited.contains(current)) continue;
-                if (!positions.contains(current)) continue;
+    // Runs on the frame pool; reads nothing but the snapshot and the region tree. A view with the same
+    // sections as last time gets its last frame back, so a keep-alive for a player standing still builds nothing
+    private static ViewFrame buildFrame(ViewSnapshot snapshot) {
+        if (snapshot.mode == DisplayMode.OVERVIEW) {
+            return buildOverview(snapshot.world, snapshot.centerX, snapshot.centerZ, snapshot.band);
+        }
 
-                visited.add(current);
-                group.add(current);
+        int mode = snapshot.mode.ordinal();
+        ViewFrame frame = RETAINED_FRAMES.get(snapshot.world, snapshot.centerX, snapshot.centerZ, snapshot.band,
+                mode, snapshot.chunks);
+        if (frame != null) {
+            if (snapshot.mode == DisplayMode.GROUPED) {
+                // Keep the view's outline from idling out while its frame is reused
+                RETAINED_OUTLINES.get(snapshot.world, snapshot.centerX, snapshot.centerZ, snapshot.band, mode,
+                        snapshot.layerCount);
+            }
+            return frame;
+        }
+        frame = renderFrame(snapshot);
+        RETAINED_FRAMES.put(snapshot.world, snapshot.centerX, snapshot.centerZ, snapshot.band, mode,
+                snapshot.chunks, frame);
+        return frame;
+    }
 
-                // Check all 6 neighbors (and diagonals for better grouping)
-                for (int dx = -1; dx <= 1; dx++) {
-                    for (int dy = -1; dy <= 1; dy++) {
-                        for (int dz = -1; dz <= 1; dz++) {
-                            if (dx == 0 && dy == 0 && dz == 0) continue;
-                            BlockPos neighbor = new BlockPos(current.x + dx, current.y + dy, current.z + dz);
-                            if (positions.contains(neighbor) && !visited.contains(neighbor)) {
-                                queue.add(neighbor);
-                            }
-                        }
+    private static ViewFrame renderFrame(ViewSnapshot snapshot) {
+        int centerX = snapshot.centerX;
+        int centerZ = snapshot.centerZ;
+        DisplayMode mode = snapshot.mode;
+        int minY = snapshot.minY;
+        int maxY = snapshot.maxY;
+        int detailRadius = snapshot.detailRadius;
+        int layerCount = snapshot.layerCount;
+
+        // Near chunks share one bitmap per layer so edges line up across chunk borders; grouped views keep
+        // their own outline and only use the bitmaps to rebuild it
+        VoxelBitmap[] detailBlocks = detailBitmaps(layerCount);
+        boolean retained = mode == DisplayMode.GROUPED;
+        if (!retained) {
+            int detailWidth = (2 * detailRadius + 1) * CHUNK_SIZE;
+            for (VoxelBitmap bitmap : detailBlocks) {
+                bitmap.reset((centerX - detailRadius) * CHUNK_SIZE, minY, (centerZ - detailRadius) * CHUNK_SIZE,
+                        detailWidth, maxY - minY + 1, detailWidth);
+            }
+        }
+        int[] detailCount = new int[layerCount];
+        LongHashSet[] farPositions = new LongHashSet[layerCount];
+        for (int layer = 0; layer < layerCount; layer++) {
+            farPositions[layer] = new LongHashSet(64);
+        }
+        SegmentList segments = new SegmentList();
+        int unitEdges = 0;
+        int blocks = 0;
+
+        for (ChunkSections chunk : snapshot.chunks) {
+            if (chunk.detail) {
+                if (retained) continue;
+                BarrierChunkCache.forEachBlock(chunk.sections, chunk.chunkX, chunk.chunkZ, minY, maxY,
+                        (layer, x, y, z) -> {
+                            detailBlocks[layer].set(x, y, z);
+                            detailCount[layer]++;
+                        });
+            } else {
+                // Far chunks: one box per connected group and layer, only where blocks exist
+                for (LongHashSet positions : farPositions) {
+                    positions.clear();
+                }
+                BarrierChunkCache.forEachBlock(chunk.sections, chunk.chunkX, chunk.chunkZ, minY, maxY,
+                        (layer, x, y, z) -> farPositions[layer].add(PackedPos.pack(x, y, z)));
+                for (int layer = 0; layer < layerCount; layer++) {
+                    if (farPositions[layer].isEmpty()) continue;
+                    blocks += farPositions[layer].size();
+                    for (BoundingBox box : ConnectedGroups.find(farPositions[layer])) {
+                        segments.addBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, layer);
+                        unitEdges += 12;
                     }
                 }
             }
+        }
 
-            // Calculate bounding box for this group
-            if (!group.isEmpty()) {
-                int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
-                int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
-
-                for (BlockPos pos : group) {
-                    minX = Math.min(minX, pos.x);
-                    minY = Math.min(minY, pos.y);
-                    minZ = Math.min(minZ, pos.z);
-                    maxX = Math.max(maxX, pos.x + 1);
-                    maxY = Math.max(maxY, pos.y + 1);
-                    maxZ = Math.max(maxZ, pos.z + 1);
+        if (retained) {
+            // Outline only - edges where there's no adjacent block of the same layer, carried over from the
+            // last frame and patched where sections changed
+            RetainedOutlines.ViewOutline outline = RETAINED_OUTLINES.get(snapshot.world, centerX, centerZ,
+                    snapshot.band, mode.ordinal(), layerCount);
+            synchronized (outline) {
+                outline.update(snapshot.chunks, minY, maxY, detailBlocks, config.vectorOutline);
+                int total = segments.size();
+                for (int layer = 0; layer < layerCount; layer++) {
+                    total += outline.segments(layer).size();
                 }
+                segments.ensureCapacity(total);
+                for (int layer = 0; layer < layerCount; layer++) {
+                    segments.addAll(outline.segments(layer));
+                    unitEdges += outline.edgeCount(layer);
+                    blocks += outline.blockCount(layer);
+                }
+            }
+        }
 
-                groups.add(new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ));
+        if (mode == DisplayMode.INDIVIDUAL) {
+            // Every block's 12 edges are added below; size the list for them up front
+            int total = segments.size();
+            for (int count : detailCount) {
+                total += count * 12;
+            }
+            segments.ensureCapacity(total);
+        }
+        for (int layer = 0; layer < layerCount; layer++) {
+            if (detailCount[layer] == 0) continue;
+            blocks += detailCount[layer];
+            if (mode == DisplayMode.CUBOIDS) {
+                // Greedy boxes; unit edges still count 12 per block so /barriershapes shows the saving
+                for (BoundingBox box : CuboidPacker.pack(detailBlocks[layer])) {
+                    segments.addBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, layer);
+                }
+                unitEdges += detailCount[layer] * 12;
+            } else {
+                // Individual wireframes (all 12 edges per block)
+                int boxLayer = layer;
+                detailBlocks[layer].forEach(pos -> {
+                    int x = PackedPos.x(pos);
+                    int y = PackedPos.y(pos);
+                    int z = PackedPos.z(pos);
+                    segments.addBox(x, y, z, x + 1, y + 1, z + 1, boxLayer);
+                });
+                unitEdges += detailCount[layer] * 12;
             }
         }
 
-        return groups;
+        if (segments.isEmpty()) return ViewFrame.EMPTY;
+        return new ViewFrame(segments, unitEdges, blocks);
     }
 
-    private static void renderWireframeBox(PlayerRef playerRef, double minX, double minY, double minZ,
-                                            double maxX, double maxY, double maxZ,
-                                            com.hypixel.hytale.protocol.Vector3f protoColor) {
-        double lenX = maxX - minX;
-        double lenY = maxY - minY;
-        double lenZ = maxZ - minZ;
-
-        // Bottom edges
-        renderEdge(playerRef, (minX + maxX) / 2.0, minY, minZ, lenX, EDGE_THICKNESS, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, (minX + maxX) / 2.0, minY, maxZ, lenX, EDGE_THICKNESS, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, minX, minY, (minZ + maxZ) / 2.0, EDGE_THICKNESS, EDGE_THICKNESS, lenZ, protoColor);
-        renderEdge(playerRef, maxX, minY, (minZ + maxZ) / 2.0, EDGE_THICKNESS, EDGE_THICKNESS, lenZ, protoColor);
-
-        // Top edges
-        renderEdge(playerRef, (minX + maxX) / 2.0, maxY, minZ, lenX, EDGE_THICKNESS, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, (minX + maxX) / 2.0, maxY, maxZ, lenX, EDGE_THICKNESS, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, minX, maxY, (minZ + maxZ) / 2.0, EDGE_THICKNESS, EDGE_THICKNESS, lenZ, protoColor);
-        renderEdge(playerRef, maxX, maxY, (minZ + maxZ) / 2.0, EDGE_THICKNESS, EDGE_THICKNESS, lenZ, protoColor);
-
-        // Vertical edges
-        renderEdge(playerRef, minX, (minY + maxY) / 2.0, minZ, EDGE_THICKNESS, lenY, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, maxX, (minY + maxY) / 2.0, minZ, EDGE_THICKNESS, lenY, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, minX, (minY + maxY) / 2.0, maxZ, EDGE_THICKNESS, lenY, EDGE_THICKNESS, protoColor);
-        renderEdge(playerRef, maxX, (minY + maxY) / 2.0, maxZ, EDGE_THICKNESS, lenY, EDGE_THICKNESS, protoColor);
+    // One box per barrier region within overview-radius of the chunk and band center
+    private static ViewFrame buildOverview(String worldName, int centerX, int centerZ, int band) {
+        BarrierRegions barrierRegions = regions;
+        if (barrierRegions == null) return ViewFrame.EMPTY;
+
+        int radius = config.overviewRadius;
+        int x = centerX * CHUNK_SIZE + CHUNK_SIZE / 2;
+        int y = band * ViewBands.BAND_HEIGHT + ViewBands.BAND_HEIGHT / 2;
+        int z = centerZ * CHUNK_SIZE + CHUNK_SIZE / 2;
+        List<BoundingBox> boxes = barrierRegions.within(worldName,
+                x - radius, y - radius, z - radius, x + radius + 1, y + radius + 1, z + radius + 1);
+        if (boxes.isEmpty()) return ViewFrame.EMPTY;
+
+        SegmentList segments = new SegmentList(boxes.size() * 12);
+        for (BoundingBox box : boxes) {
+            segments.addBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+        }
+        return new ViewFrame(segments, boxes.size() * 12, 0);
     }
 
-    private static void renderEdge(PlayerRef playerRef, double cx, double cy, double cz,
-                                   double sx, double sy, double sz,
-                                   com.hypixel.hytale.protocol.Vector3f color) {
-        Matrix4d matrix = new Matrix4d();
-        matrix.identity();
-        matrix.translate(cx, cy, cz);
-        matrix.scale(sx, sy, sz);
+    private static PacketCache packetCache(World world) {
+        return packetCaches.computeIfAbsent(world.getName(), name -> new PacketCache());
+    }
 
-        DisplayDebug packet = new DisplayDebug(DebugShape.Cube, matrix.asFloatData(), color, 2.0f, true, null);
-        playerRef.getPacketHandler().write((Packet) packet);
+    private static VoxelBitmap[] detailBitmaps(int layerCount) {
+        VoxelBitmap[] bitmaps = DETAIL_BITMAPS.get();
+        if (bitmaps.length != layerCount) {
+            bitmaps = new VoxelBitmap[layerCount];
+            for (int layer = 0; layer < layerCount; layer++) {
+                bitmaps[layer] = new VoxelBitmap();
+            }
+            DETAIL_BITMAPS.set(bitmaps);
+        }
+        return bitmaps;
     }
 
     public static void clearDebugShapes(PlayerRef playerRef) {
         if (playerRef == null) return;
-        ClearDebugShapes packet = new ClearDebugShapes();
-        playerRef.getPacketHandler().write((Packet) packet);
+        ShapeRenderer.clear(playerRef);
+        shapeStreams.remove(playerRef.getUuid());
     }
 
     public static void clearDebugShapes(World world) {
         if (world == null) return;
-        ClearDebugShapes packet = new ClearDebugShapes();
         for (PlayerRef playerRef : world.getPlayerRefs()) {
-            playerRef.getPacketHandler().write((Packet) packet);
+            ShapeRenderer.clear(playerRef);
+            shapeStreams.remove(playerRef.getUuid());
         }
     }
 
-    // Helper class for block positions
-    private static class BlockPos {
-        final int x, y, z;
+    // Everything one view's frame is built from, copied on the world thread
+    private static class ViewSnapshot {
+        final String world;
+        final int centerX, centerZ, band;
+        final DisplayMode mode;
+        final int minY, maxY;
+        final int detailRadius;
+        final int layerCount;
+        final List<ChunkSections> chunks = new ArrayList<>();
+        // Players sharing this view, and the frame once built
+        final List<Viewer> viewers = new ArrayList<>();
+        volatile ViewFrame frame;
+        // Some sections were left for a later job, so the frame shows part of the view
+        boolean incomplete;
+
+        ViewSnapshot(String world, Viewer viewer, int detailRadius, int layerCount) {
+            this.world = world;
+            this.centerX = viewer.chunkX;
+            this.centerZ = viewer.chunkZ;
+            this.band = viewer.band;
+            this.mode = viewer.mode;
+            this.minY = Math.max(0, ViewBands.bandMinY(band));
+            this.maxY = Math.min(BarrierChunkCache.WORLD_HEIGHT - 1, ViewBands.bandMaxY(band));
+            this.detailRadius = detailRadius;
+            this.layerCount = layerCount;
+        }
+    }
 
-        BlockPos(int x, int y, int z) {
+    // An enabled player resolved on the world thread for this cycle
+    private static class Viewer {
+        static final Comparator<Viewer> BY_VIEW = Comparator
+                .comparingInt((Viewer v) -> v.chunkX)
+                .thenComparingInt(v -> v.chunkZ)
+                .thenComparingInt(v -> v.band)
+                .thenComparing(v -> v.mode);
+
+        final PlayerRef playerRef;
+        final WorldChunk chunk;
+        final double x, y, z;
+        final int chunkX, chunkZ, band;
+        final DisplayMode mode;
+
+        Viewer(PlayerRef playerRef, WorldChunk chunk, double x, double y, double z,
+               int chunkX, int chunkZ, int band, DisplayMode mode) {
+            this.playerRef = playerRef;
+            this.chunk = chunk;
             this.x = x;
             this.y = y;
             this.z = z;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof BlockPos)) return false;
-            BlockPos blockPos = (BlockPos) o;
-            return x == blockPos.x && y == blockPos.y && z == blockPos.z;
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(x, y, z);
-        }
-    }
-
-    // Helper class for bounding boxes
-    private static class BoundingBox {
-        final double minX, minY, minZ, maxX, maxY, maxZ;
-
-        BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
-            this.minX = minX;
-            this.minY = minY;
-            this.minZ = minZ;
-            this.maxX = maxX;
-            this.maxY = maxY;
-            this.maxZ = maxZ;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.band = band;
+            this.mode = mode;
         }
     }
 }
@@ -0,0 +1,95 @@
+package com.pauwma.barrierview;
+
+import com.hypixel.hytale.math.vector.Vector3f;
+import com.pauwma.barrierview.scan.ViewBands;
+import com.pauwma.barrierview.scan.ViewFrame;
+
+import java.util.List;
+
+/**
+ * Tracks which view (chunk and Y-band) a player is in and when they were last
+ * refreshed, so the scheduler only renders players that moved, changed a
+ * setting, or are due for a keep-alive. It also keeps the last frame sent to
+ * the player, so a new color can be applied to it without building another.
+ */
+class ViewState {
+
+    // Blocks a player may drift past their band's edge before the band changes
+    static final int BAND_HYSTERESIS = 4;
+
+    int chunkX;
+    int chunkZ;
+    int band;
+    long lastRefresh;
+    volatile boolean dirty = true;
+    // Geometry last sent to the player; null until the first render
+    volatile ViewFrame frame;
+    // Rainbow hue the player is on, and when they moved to it
+    volatile int rainbowStep;
+    long rainbowSteppedAt;
+    private boolean placed = false;
+
+    // Protocol colors last sent to the player and the colors they were made from
+    private volatile Vector3f colorSource;
+    private volatile List<BarrierViewConfig.Layer> layersSource;
+    private com.hypixel.hytale.protocol.Vector3f[] layerColors;
+
+    // Updates the view from a block position; returns true if it changed
+    boolean moveTo(int x, int y, int z) {
+        int newChunkX = Math.floorDiv(x, BarrierViewManager.CHUNK_SIZE);
+        int newChunkZ = Math.floorDiv(z, BarrierViewManager.CHUNK_SIZE);
+
+        if (!placed) {
+            placed = true;
+            chunkX = newChunkX;
+            chunkZ = newChunkZ;
+            band = ViewBands.bandOf(y);
+            return true;
+        }
+
+        boolean changed = newChunkX != chunkX || newChunkZ != chunkZ;
+        chunkX = newChunkX;
+        chunkZ = newChunkZ;
+
+        // Only switch bands once the player is clearly outside the current one
+        int bandMin = band * ViewBands.BAND_HEIGHT;
+        int bandMax = bandMin + ViewBands.BAND_HEIGHT - 1;
+        if (y < bandMin - BAND_HYSTERESIS || y > bandMax + BAND_HYSTERESIS) {
+            band = ViewBands.bandOf(y);
+            changed = true;
+        }
+        return changed;
+    }
+
+    // True if the player's barriers were last sent in another color than this
+    boolean colorChanged(Vector3f barrierColor) {
+        return colorSource != null && barrierColor != colorSource;
+    }
+
+    // True if the last frame was sent with these layers, so it can be recolored as it is
+    boolean sameLayers(List<BarrierViewConfig.Layer> extraLayers) {
+        return extraLayers == layersSource;
+    }
+
+    // Barriers in barrierColor, other layers in their configured colors; only rebuilt when either changed,
+    // so a steady render allocates no colors
+    com.hypixel.hytale.protocol.Vector3f[] layerColors(Vector3f barrierColor,
+                                                       List<BarrierViewConfig.Layer> extraLayers) {
+        if (barrierColor != colorSource || extraLayers != layersSource) {
+            com.hypixel.hytale.protocol.Vector3f[] colors =
+                    new com.hypixel.hytale.protocol.Vector3f[extraLayers.size() + 1];
+            colors[0] = toProtocol(barrierColor);
+            for (int layer = 1; layer < colors.length; layer++) {
+                colors[layer] = toProtocol(extraLayers.get(layer - 1).color);
+            }
+            colorSource = barrierColor;
+            layersSource = extraLayers;
+            layerColors = colors;
+        }
+        return layerColors;
+    }
+
+    private static com.hypixel.hytale.protocol.Vector3f toProtocol(Vector3f color) {
+        return new com.hypixel.hytale.protocol.Vector3f(color.x, color.y, color.z);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pauwma.barrierview.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Transform;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.pauwma.barrierview.BarrierViewManager;
+import com.pauwma.barrierview.geometry.BoundingBox;
+
+import javax.annotation.Nonnull;
+import java.awt.Color;
+
+public class BarrierIndexCommand extends AbstractPlayerCommand {
+
+    public BarrierIndexCommand() {
+        super("barrierindex", "Show indexed barriers in this world and the region nearest to you", false);
+    }
+
+    @Override
+    protected void execute(
+            @Nonnull CommandContext context,
+            @Nonnull Store<EntityStore> store,
+            @Nonnull Ref<EntityStore> ref,
+            @Nonnull PlayerRef playerRef,
+            @Nonnull World world
+    ) {
+        Transform transform = playerRef.getTransform();
+        Vector3d position = transform != null ? transform.getPosition() : null;
+        if (position == null) return;
+
+        // Counting walks the whole world's index, so the reply comes back once that is done
+        boolean started = BarrierViewManager.summarizeIndex(world,
+                (int) Math.floor(position.x), (int) Math.floor(position.y), (int) Math.floor(position.z),
+                summary -> report(context, summary));
+        if (!started) {
+            context.sendMessage(Message.join(
+                    Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                    Message.raw("The barrier index is not available.").color(Color.YELLOW)
+            ));
+        }
+    }
+
+    private static void report(CommandContext context, BarrierViewManager.IndexSummary summary) {
+        context.sendMessage(Message.join(
+                Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                Message.raw("Indexed: ").color(Color.WHITE),
+                Message.raw(summary.barriers + " barriers").color(Color.YELLOW),
+                Message.raw(" in " + summary.chunks + " chunks").color(Color.GRAY)
+        ));
+        context.sendMessage(Message.join(
+                Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                Message.raw("Regions: ").color(Color.WHITE),
+                Message.raw(String.valueOf(summary.regions)).color(Color.YELLOW),
+                Message.raw(", " + summary.regionsInRange + " within "
+                        + BarrierViewManager.getConfig().overviewRadius + " blocks").color(Color.GRAY)
+        ));
+        if (summary.containing != null) {
+            context.sendMessage(Message.join(
+                    Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                    Message.raw("Inside region: ").color(Color.WHITE),
+                    Message.raw(describe(summary.containing)).color(Color.YELLOW)
+            ));
+        } else if (summary.nearest != null) {
+            context.sendMessage(Message.join(
+                    Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                    Message.raw("Nearest region: ").color(Color.WHITE),
+                    Message.raw(describe(summary.nearest)).color(Color.YELLOW)
+            ));
+        }
+    }
+
+    // Inclusive block corners of the region
+    private static String describe(BoundingBox box) {
+        return box.minX + " " + box.minY + " " + box.minZ + " to "
+                + (box.maxX - 1) + " " + (box.maxY - 1) + " " + (box.maxZ - 1);
+    }
+}
@@ -17,7 +17,7 @@ import java.util.UUID;
 public class BarrierModeCommand extends AbstractPlayerCommand {
 
     public BarrierModeCommand() {
-        super("barriermode", "Toggle barrier display mode (individual/grouped)", false);
+        super("barriermode", "Cycle barrier display mode (individual/grouped/cuboids)", false);
     }
 
     @Override
@@ -31,7 +31,18 @@ public class BarrierModeCommand extends AbstractPlayerCommand {
         UUID playerUuid = playerRef.getUuid();
         BarrierViewManager.DisplayMode newMode = BarrierViewManager.cycleDisplayMode(playerUuid);
 
-        String modeName = newMode == BarrierViewManager.DisplayMode.INDIVIDUAL ? "Individual" : "Grouped";
+        String modeName;
+        switch (newMode) {
+            case INDIVIDUAL:
+                modeName = "Individual";
+                break;
+            case CUBOIDS:
+                modeName = "Cuboids";
+                break;
+            default:
+                modeName = "Grouped";
+                break;
+        }
         context.sendMessage(Message.join(
                 Message.raw("[BarrierView] ").color(Color.RED).bold(true),
                 Message.raw("Display mode: ").color(Color.WHITE),
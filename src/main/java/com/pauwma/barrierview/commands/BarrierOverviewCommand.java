@@ -0,0 +1,56 @@
+package com.pauwma.barrierview.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.pauwma.barrierview.BarrierViewManager;
+
+import javax.annotation.Nonnull;
+import java.awt.Color;
+import java.util.UUID;
+
+// Separate from /barriermode so servers can limit the large-radius view to admins by command permission
+public class BarrierOverviewCommand extends AbstractPlayerCommand {
+
+    public BarrierOverviewCommand() {
+        super("barrieroverview", "Toggle the large-radius barrier region overview", false);
+    }
+
+    @Override
+    protected void execute(
+            @Nonnull CommandContext context,
+            @Nonnull Store<EntityStore> store,
+            @Nonnull Ref<EntityStore> ref,
+            @Nonnull PlayerRef playerRef,
+            @Nonnull World world
+    ) {
+        UUID playerUuid = playerRef.getUuid();
+        boolean overview = BarrierViewManager.toggleOverview(playerUuid);
+
+        if (overview) {
+            // The overview is a display mode, so outlines have to be on to see it
+            if (!BarrierViewManager.isEnabled(playerUuid)) {
+                BarrierViewManager.toggle(playerUuid);
+            }
+            BarrierViewManager.registerWorld(world);
+            context.sendMessage(Message.join(
+                    Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                    Message.raw("Overview ").color(Color.WHITE),
+                    Message.raw("ENABLED").color(Color.GREEN),
+                    Message.raw(" (" + BarrierViewManager.getConfig().overviewRadius + " blocks)").color(Color.GRAY)
+            ));
+        } else {
+            context.sendMessage(Message.join(
+                    Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                    Message.raw("Overview ").color(Color.WHITE),
+                    Message.raw("DISABLED").color(Color.YELLOW),
+                    Message.raw(" (back to Grouped)").color(Color.GRAY)
+            ));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pauwma.barrierview.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.pauwma.barrierview.BarrierViewManager;
+
+import javax.annotation.Nonnull;
+import java.awt.Color;
+
+public class BarrierShapesCommand extends AbstractPlayerCommand {
+
+    public BarrierShapesCommand() {
+        super("barriershapes", "Show edge, shape and packet counts of your last refresh", false);
+    }
+
+    @Override
+    protected void execute(
+            @Nonnull CommandContext context,
+            @Nonnull Store<EntityStore> store,
+            @Nonnull Ref<EntityStore> ref,
+            @Nonnull PlayerRef playerRef,
+            @Nonnull World world
+    ) {
+        BarrierViewManager.ShapeCounts counts = BarrierViewManager.getLastShapeCounts(playerRef.getUuid());
+        if (counts == null) {
+            context.sendMessage(Message.join(
+                    Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                    Message.raw("No barrier outlines rendered yet. Use /showbarrier first.").color(Color.YELLOW)
+            ));
+            return;
+        }
+
+        int saved = counts.unitEdges == 0 ? 0 : Math.round(100f * (counts.unitEdges - counts.shapes) / counts.unitEdges);
+        context.sendMessage(Message.join(
+                Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                Message.raw("Edges: ").color(Color.WHITE),
+                Message.raw(String.valueOf(counts.unitEdges)).color(Color.YELLOW),
+                Message.raw(" -> shapes: ").color(Color.WHITE),
+                Message.raw(String.valueOf(counts.shapes)).color(Color.YELLOW),
+                Message.raw(" (" + saved + "% fewer)").color(Color.GRAY)
+        ));
+        context.sendMessage(Message.join(
+                Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                Message.raw("Blocks shown: ").color(Color.WHITE),
+                Message.raw(String.valueOf(counts.blocks)).color(Color.YELLOW)
+        ));
+        context.sendMessage(Message.join(
+                Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                Message.raw("Packets written last refresh: ").color(Color.WHITE),
+                Message.raw(String.valueOf(counts.packets)).color(Color.YELLOW)
+        ));
+    }
+}
@@ -0,0 +1,119 @@
+package com.pauwma.barrierview.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgumentType;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.pauwma.barrierview.stats.BarrierStats;
+import com.pauwma.barrierview.stats.StatsRegistry;
+
+import javax.annotation.Nonnull;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class BarrierStatsCommand extends AbstractPlayerCommand {
+
+    // How many players to list, busiest first
+    private static final int TOP_PLAYERS = 5;
+
+    private final RequiredArg<String> actionArg = this.withRequiredArg("action", "Use 'reset' to zero all counters", (ArgumentType) ArgTypes.STRING);
+
+    public BarrierStatsCommand() {
+        super("barrierstats", "Show live scan, render and packet statistics", false);
+    }
+
+    @Override
+    protected void execute(
+            @Nonnull CommandContext context,
+            @Nonnull Store<EntityStore> store,
+            @Nonnull Ref<EntityStore> ref,
+            @Nonnull PlayerRef playerRef,
+            @Nonnull World world
+    ) {
+        BarrierStats global = StatsRegistry.global();
+        if (context.provided(this.actionArg) && "reset".equalsIgnoreCase((String) context.get(this.actionArg))) {
+            global.reset();
+            StatsRegistry.worlds().values().forEach(BarrierStats::reset);
+            StatsRegistry.players().values().forEach(BarrierStats::reset);
+            send(context, Message.raw("Statistics reset.").color(Color.GREEN));
+            return;
+        }
+
+        send(context, Message.raw("Global").color(Color.WHITE).bold(true));
+        sendScope(context, global);
+
+        for (Map.Entry<String, BarrierStats> entry : StatsRegistry.worlds().entrySet()) {
+            BarrierStats stats = entry.getValue();
+            send(context, Message.join(
+                    Message.raw("World " + entry.getKey() + ": ").color(Color.WHITE),
+                    Message.raw(stats.getRenders() + " renders, ").color(Color.YELLOW),
+                    Message.raw(stats.getPacketsWritten() + " packets, ").color(Color.YELLOW),
+                    Message.raw("job p99 " + stats.getWorldJobP99Micros() + "us, ").color(Color.YELLOW),
+                    Message.raw(stats.getCycleOverruns() + " overruns").color(Color.YELLOW)
+            ));
+        }
+
+        List<Map.Entry<UUID, BarrierStats>> players = new ArrayList<>(StatsRegistry.players().entrySet());
+        players.sort((a, b) -> Long.compare(b.getValue().getPacketsWritten(), a.getValue().getPacketsWritten()));
+        for (int i = 0; i < Math.min(TOP_PLAYERS, players.size()); i++) {
+            BarrierStats stats = players.get(i).getValue();
+            send(context, Message.join(
+                    Message.raw("Player " + StatsRegistry.playerName(players.get(i).getKey()) + ": ").color(Color.WHITE),
+                    Message.raw(stats.getRenders() + " renders, ").color(Color.YELLOW),
+                    Message.raw(stats.getShapes() + " shapes, ").color(Color.YELLOW),
+                    Message.raw(stats.getPacketsWritten() + " packets").color(Color.YELLOW)
+            ));
+        }
+    }
+
+    private static void sendScope(CommandContext context, BarrierStats stats) {
+        send(context, Message.join(
+                Message.raw("Scans: ").color(Color.WHITE),
+                Message.raw(stats.getSectionsScanned() + " sections (" + stats.getSectionsSkipped() + " skipped, "
+                        + stats.getSectionsFromIndex() + " from index, "
+                        + stats.getSectionsDeferred() + " deferred), "
+                        + stats.getBarriersFound() + " barriers, ").color(Color.YELLOW),
+                Message.raw(String.format("mean %.0fus / p99 %dus / max %dus",
+                        stats.getScanMeanMicros(), stats.getScanP99Micros(), stats.getScanMaxMicros())).color(Color.GRAY)
+        ));
+        send(context, Message.join(
+                Message.raw("Cache: ").color(Color.WHITE),
+                Message.raw(String.format("%.1f%% hit rate", stats.getCacheHitRate() * 100)).color(Color.YELLOW),
+                Message.raw(", shared views reused " + stats.getSharedViewHits() + "x, "
+                        + stats.getRecolors() + " recolors without a scan").color(Color.GRAY)
+        ));
+        send(context, Message.join(
+                Message.raw("Frames: ").color(Color.WHITE),
+                Message.raw(String.format("mean %.0fus / p99 %dus / max %dus",
+                        stats.getFrameMeanMicros(), stats.getFrameP99Micros(), stats.getFrameMaxMicros())).color(Color.YELLOW)
+        ));
+        send(context, Message.join(
+                Message.raw("Output: ").color(Color.WHITE),
+                Message.raw(stats.getUnitEdges() + " edges -> " + stats.getShapes() + " shapes, "
+                        + stats.getPacketsWritten() + " packets").color(Color.YELLOW),
+                Message.raw(", " + stats.getPacketsBuilt() + " built").color(Color.GRAY)
+        ));
+        send(context, Message.join(
+                Message.raw("Cycles: ").color(Color.WHITE),
+                Message.raw(stats.getCycleOverruns() + " overruns, " + stats.getErrors() + " errors").color(Color.YELLOW),
+                Message.raw(stats.getLastError().isEmpty() ? "" : " (last: " + stats.getLastError() + ")").color(Color.GRAY)
+        ));
+    }
+
+    private static void send(CommandContext context, Message message) {
+        context.sendMessage(Message.join(
+                Message.raw("[BarrierView] ").color(Color.RED).bold(true),
+                message
+        ));
+    }
+}
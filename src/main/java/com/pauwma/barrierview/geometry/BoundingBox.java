@@ -0,0 +1,15 @@
+package com.pauwma.barrierview.geometry;
+
+// Block-aligned box; max coordinates are exclusive (one past the last block)
+public class BoundingBox {
+    public final int minX, minY, minZ, maxX, maxY, maxZ;
+
+    public BoundingBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+}
@@ -0,0 +1,410 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Dynamic bounding volume hierarchy over block-aligned boxes, stored as
+ * parallel int arrays. Boxes can be inserted and removed one at a time; the
+ * tree is rebalanced with rotations on the way up so its height stays
+ * logarithmic, and range, point and nearest queries only descend into
+ * branches whose bounds can still match.
+ *
+ * Leaves are addressed by the id insert returns. Max coordinates are
+ * exclusive, like {@link BoundingBox}.
+ */
+public class BoxTree {
+
+    public static final int NULL = -1;
+
+    private int[] minX, minY, minZ, maxX, maxY, maxZ;
+    // For free nodes, parent links the free list
+    private int[] parent, left, right, height;
+    private long[] value;
+    private int root = NULL;
+    private int free = NULL;
+    private int nodeCount = 0;
+    private int leafCount = 0;
+
+    // Scratch stack for queries
+    private int[] stack = new int[64];
+
+    public BoxTree() {
+        allocate(16);
+    }
+
+    // Adds a box carrying value and returns its leaf id
+    public int insert(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, long value) {
+        int leaf = newNode();
+        this.minX[leaf] = minX;
+        this.minY[leaf] = minY;
+        this.minZ[leaf] = minZ;
+        this.maxX[leaf] = maxX;
+        this.maxY[leaf] = maxY;
+        this.maxZ[leaf] = maxZ;
+        this.value[leaf] = value;
+        insertLeaf(leaf);
+        leafCount++;
+        return leaf;
+    }
+
+    public void remove(int leaf) {
+        removeLeaf(leaf);
+        freeNode(leaf);
+        leafCount--;
+    }
+
+    public void clear() {
+        root = NULL;
+        free = NULL;
+        nodeCount = 0;
+        leafCount = 0;
+    }
+
+    public int size() {
+        return leafCount;
+    }
+
+    public boolean isEmpty() {
+        return leafCount == 0;
+    }
+
+    // Height of the root; 0 for a single leaf or an empty tree
+    public int height() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    public int minX(int leaf) {
+        return minX[leaf];
+    }
+
+    public int minY(int leaf) {
+        return minY[leaf];
+    }
+
+    public int minZ(int leaf) {
+        return minZ[leaf];
+    }
+
+    public int maxX(int leaf) {
+        return maxX[leaf];
+    }
+
+    public int maxY(int leaf) {
+        return maxY[leaf];
+    }
+
+    public int maxZ(int leaf) {
+        return maxZ[leaf];
+    }
+
+    public long value(int leaf) {
+        return value[leaf];
+    }
+
+    public BoundingBox box(int leaf) {
+        return new BoundingBox(minX[leaf], minY[leaf], minZ[leaf], maxX[leaf], maxY[leaf], maxZ[leaf]);
+    }
+
+    // Visit every leaf overlapping the box
+    public void query(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, IntConsumer visitor) {
+        if (root == NULL) return;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (this.minX[node] >= maxX || this.maxX[node] <= minX
+                    || this.minY[node] >= maxY || this.maxY[node] <= minY
+                    || this.minZ[node] >= maxZ || this.maxZ[node] <= minZ) {
+                continue;
+            }
+            if (left[node] == NULL) {
+                visitor.accept(node);
+            } else {
+                top = push(top, left[node], right[node]);
+            }
+        }
+    }
+
+    // Visit every leaf containing the block at (x, y, z)
+    public void queryPoint(int x, int y, int z, IntConsumer visitor) {
+        query(x, y, z, x + 1, y + 1, z + 1, visitor);
+    }
+
+    // Leaf whose box is closest to the block at (x, y, z), or NULL if the tree is empty
+    public int nearest(int x, int y, int z) {
+        if (root == NULL) return NULL;
+        int best = NULL;
+        long bestDistance = Long.MAX_VALUE;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            long distance = distanceSq(node, x, y, z);
+            if (distance >= bestDistance) continue;
+            if (left[node] == NULL) {
+                best = node;
+                bestDistance = distance;
+                if (distance == 0) break;
+                continue;
+            }
+            // Push the farther child first so the nearer one is searched first
+            int a = left[node], b = right[node];
+            if (distanceSq(a, x, y, z) < distanceSq(b, x, y, z)) {
+                top = push(top, b, a);
+            } else {
+                top = push(top, a, b);
+            }
+        }
+        return best;
+    }
+
+    // Squared distance from the block at (x, y, z) to the node's box; 0 inside
+    public long distanceSq(int node, int x, int y, int z) {
+        long dx = axisDistance(x, minX[node], maxX[node]);
+        long dy = axisDistance(y, minY[node], maxY[node]);
+        long dz = axisDistance(z, minZ[node], maxZ[node]);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static long axisDistance(int v, int min, int max) {
+        if (v < min) return min - v;
+        if (v >= max) return v - max + 1;
+        return 0;
+    }
+
+    private int push(int top, int a, int b) {
+        if (top + 2 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = a;
+        stack[top++] = b;
+        return top;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // Walk down to the sibling that grows the tree's surface the least
+        int index = root;
+        while (left[index] != NULL) {
+            long area = area(index);
+            long combined = unionArea(index, leaf);
+            long cost = 2 * combined;
+            long inheritance = 2 * (combined - area);
+            long costLeft = childCost(left[index], leaf, inheritance);
+            long costRight = childCost(right[index], leaf, inheritance);
+            if (cost < costLeft && cost < costRight) break;
+            index = costLeft < costRight ? left[index] : right[index];
+        }
+        int sibling = index;
+
+        int oldParent = parent[sibling];
+        int newParent = newNode();
+        parent[newParent] = oldParent;
+        height[newParent] = height[sibling] + 1;
+        setUnion(newParent, sibling, leaf);
+        if (oldParent == NULL) {
+            root = newParent;
+        } else if (left[oldParent] == sibling) {
+            left[oldParent] = newParent;
+        } else {
+            right[oldParent] = newParent;
+        }
+        left[newParent] = sibling;
+        right[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private long childCost(int child, int leaf, long inheritance) {
+        if (left[child] == NULL) {
+            return unionArea(child, leaf) + inheritance;
+        }
+        return unionArea(child, leaf) - area(child) + inheritance;
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = left[p] == leaf ? right[p] : left[p];
+        freeNode(p);
+        if (grandParent == NULL) {
+            root = sibling;
+            parent[sibling] = NULL;
+            return;
+        }
+        if (left[grandParent] == p) {
+            left[grandParent] = sibling;
+        } else {
+            right[grandParent] = sibling;
+        }
+        parent[sibling] = grandParent;
+        refit(grandParent);
+    }
+
+    // Rebalance and recompute bounds from index up to the root
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            int a = left[index], b = right[index];
+            height[index] = 1 + Math.max(height[a], height[b]);
+            setUnion(index, a, b);
+            index = parent[index];
+        }
+    }
+
+    // Rotate the taller grandchild up when the children's heights differ by more than one
+    private int balance(int a) {
+        if (left[a] == NULL || height[a] < 2) return a;
+
+        int b = left[a];
+        int c = right[a];
+        int diff = height[c] - height[b];
+
+        if (diff > 1) {
+            // Rotate c up
+            int f = left[c];
+            int g = right[c];
+            left[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+            if (height[f] > height[g]) {
+                right[c] = f;
+                right[a] = g;
+                parent[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                right[c] = g;
+                right[a] = f;
+                parent[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        if (diff < -1) {
+            // Rotate b up
+            int d = left[b];
+            int e = right[b];
+            left[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+            if (height[d] > height[e]) {
+                right[b] = d;
+                left[a] = e;
+                parent[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                right[b] = e;
+                left[a] = d;
+                parent[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (node == NULL) {
+            root = newChild;
+        } else if (left[node] == oldChild) {
+            left[node] = newChild;
+        } else {
+            right[node] = newChild;
+        }
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        minZ[node] = Math.min(minZ[a], minZ[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+        maxZ[node] = Math.max(maxZ[a], maxZ[b]);
+    }
+
+    // Half the surface area; only compared, so the factor doesn't matter
+    private long area(int node) {
+        return area(maxX[node] - minX[node], maxY[node] - minY[node], maxZ[node] - minZ[node]);
+    }
+
+    private long unionArea(int a, int b) {
+        return area(Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]),
+                Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]),
+                Math.max(maxZ[a], maxZ[b]) - Math.min(minZ[a], minZ[b]));
+    }
+
+    private static long area(long dx, long dy, long dz) {
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private int newNode() {
+        int node;
+        if (free != NULL) {
+            node = free;
+            free = parent[node];
+        } else {
+            if (nodeCount == parent.length) {
+                allocate(nodeCount * 2);
+            }
+            node = nodeCount++;
+        }
+        parent[node] = NULL;
+        left[node] = NULL;
+        right[node] = NULL;
+        height[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = free;
+        height[node] = -1;
+        free = node;
+    }
+
+    private void allocate(int capacity) {
+        minX = grow(minX, capacity);
+        minY = grow(minY, capacity);
+        minZ = grow(minZ, capacity);
+        maxX = grow(maxX, capacity);
+        maxY = grow(maxY, capacity);
+        maxZ = grow(maxZ, capacity);
+        parent = grow(parent, capacity);
+        left = grow(left, capacity);
+        right = grow(right, capacity);
+        height = grow(height, capacity);
+        value = value == null ? new long[capacity] : Arrays.copyOf(value, capacity);
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
@@ -0,0 +1,65 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a block set into groups connected through faces, edges or corners
+ * and returns the bounding box of each group.
+ */
+public final class ConnectedGroups {
+
+    private ConnectedGroups() {
+    }
+
+    public static List<BoundingBox> find(LongHashSet positions) {
+        List<BoundingBox> groups = new ArrayList<>();
+        LongHashSet visited = new LongHashSet(positions.size());
+        long[] stack = new long[64];
+
+        for (long start : positions.toArray()) {
+            if (!visited.add(start)) continue;
+
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+            // Depth-first flood fill; blocks are marked visited when pushed
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0) {
+                long current = stack[--top];
+                int x = PackedPos.x(current);
+                int y = PackedPos.y(current);
+                int z = PackedPos.z(current);
+
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x + 1);
+                maxY = Math.max(maxY, y + 1);
+                maxZ = Math.max(maxZ, z + 1);
+
+                // Check all 6 neighbors (and diagonals for better grouping)
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            if (dx == 0 && dy == 0 && dz == 0) continue;
+                            long neighbor = PackedPos.pack(x + dx, y + dy, z + dz);
+                            if (positions.contains(neighbor) && visited.add(neighbor)) {
+                                if (top == stack.length) {
+                                    stack = Arrays.copyOf(stack, top * 2);
+                                }
+                                stack[top++] = neighbor;
+                            }
+                        }
+                    }
+                }
+            }
+
+            groups.add(new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ));
+        }
+
+        return groups;
+    }
+}
@@ -0,0 +1,101 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Covers the blocks of a bitmap with a small set of non-overlapping boxes.
+ *
+ * Greedy: the lowest remaining block starts a box, which grows as far as
+ * possible along X, then Z, then Y while every block it covers is still
+ * uncovered. Not always minimal, but a solid volume becomes a single box and
+ * a slab one box per layer at worst. Rows are tested and cleared 64 blocks at
+ * a time.
+ */
+public final class CuboidPacker {
+
+    private CuboidPacker() {
+    }
+
+    public static List<BoundingBox> pack(VoxelBitmap blocks) {
+        List<BoundingBox> boxes = new ArrayList<>();
+        int sizeY = blocks.sizeY();
+        int sizeZ = blocks.sizeZ();
+        int wordsPerRow = blocks.wordsPerRow();
+        // Bits still to cover; the bitmap itself is left alone
+        long[] remaining = Arrays.copyOf(blocks.words(), wordsPerRow * sizeY * sizeZ);
+
+        for (int by = 1; by < sizeY - 1; by++) {
+            for (int bz = 1; bz < sizeZ - 1; bz++) {
+                int row = blocks.rowIndex(by, bz);
+                for (int w = 0; w < wordsPerRow; w++) {
+                    while (remaining[row + w] != 0) {
+                        int x0 = (w << 6) + Long.numberOfTrailingZeros(remaining[row + w]);
+                        int x1 = runEnd(remaining, row, x0);
+
+                        int z1 = bz + 1;
+                        while (z1 < sizeZ - 1 && isFull(remaining, blocks.rowIndex(by, z1), x0, x1)) {
+                            z1++;
+                        }
+
+                        int y1 = by + 1;
+                        while (y1 < sizeY - 1 && isLayerFull(remaining, blocks, y1, bz, z1, x0, x1)) {
+                            y1++;
+                        }
+
+                        for (int y = by; y < y1; y++) {
+                            for (int z = bz; z < z1; z++) {
+                                clear(remaining, blocks.rowIndex(y, z), x0, x1);
+                            }
+                        }
+                        boxes.add(new BoundingBox(
+                                blocks.originX() + x0, blocks.originY() + by, blocks.originZ() + bz,
+                                blocks.originX() + x1, blocks.originY() + y1, blocks.originZ() + z1));
+                    }
+                }
+            }
+        }
+        return boxes;
+    }
+
+    // First unset bit at or after x0 in the row; the empty padding guarantees one
+    private static int runEnd(long[] words, int row, int x0) {
+        int w = x0 >> 6;
+        long gaps = ~words[row + w] & (-1L << x0);
+        while (gaps == 0) {
+            gaps = ~words[row + ++w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(gaps);
+    }
+
+    // Every bit of [x0, x1) set in rows (y, z0) to (y, z1 - 1)
+    private static boolean isLayerFull(long[] words, VoxelBitmap blocks, int y, int z0, int z1, int x0, int x1) {
+        for (int z = z0; z < z1; z++) {
+            if (!isFull(words, blocks.rowIndex(y, z), x0, x1)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isFull(long[] words, int row, int x0, int x1) {
+        for (int w = x0 >> 6; w <= (x1 - 1) >> 6; w++) {
+            long mask = mask(w, x0, x1);
+            if ((words[row + w] & mask) != mask) return false;
+        }
+        return true;
+    }
+
+    private static void clear(long[] words, int row, int x0, int x1) {
+        for (int w = x0 >> 6; w <= (x1 - 1) >> 6; w++) {
+            words[row + w] &= ~mask(w, x0, x1);
+        }
+    }
+
+    // Bits of word w that fall in [x0, x1)
+    private static long mask(int w, int x0, int x1) {
+        int lo = Math.max(x0, w << 6);
+        int hi = Math.min(x1, (w + 1) << 6);
+        long bits = hi - lo == 64 ? -1L : (1L << (hi - lo)) - 1;
+        return bits << lo;
+    }
+}
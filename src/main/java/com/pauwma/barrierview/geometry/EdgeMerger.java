@@ -0,0 +1,39 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Joins runs of adjacent unit edges on the same axis into single segments,
+ * so a straight wall outline is a handful of long lines instead of one shape
+ * per block.
+ */
+public final class EdgeMerger {
+
+    private EdgeMerger() {
+    }
+
+    // Appends one segment per maximal run of collinear edges to out
+    public static void merge(LongHashSet edges, SegmentList out) {
+        merge(edges, out, 0);
+    }
+
+    // Same, with every segment tagged with the given highlight layer
+    public static void merge(LongHashSet edges, SegmentList out, int layer) {
+        edges.forEach(edge -> {
+            int axis = PackedPos.axis(edge);
+            int x = PackedPos.x(edge);
+            int y = PackedPos.y(edge);
+            int z = PackedPos.z(edge);
+            int dx = axis == PackedPos.AXIS_X ? 1 : 0;
+            int dy = axis == PackedPos.AXIS_Y ? 1 : 0;
+            int dz = axis == PackedPos.AXIS_Z ? 1 : 0;
+
+            // Only the first edge of a run emits it
+            if (edges.contains(PackedPos.edge(x - dx, y - dy, z - dz, axis))) return;
+
+            int length = 1;
+            while (edges.contains(PackedPos.edge(x + dx * length, y + dy * length, z + dz * length, axis))) {
+                length++;
+            }
+            out.add(axis, x, y, z, length, layer);
+        });
+    }
+}
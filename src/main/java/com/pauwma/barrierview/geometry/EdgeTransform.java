@@ -0,0 +1,24 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Center and scale of the cube that draws a segment: the segment's length
+ * along its axis and the edge thickness across it.
+ */
+public final class EdgeTransform {
+
+    private EdgeTransform() {
+    }
+
+    // Writes cx, cy, cz, sx, sy, sz for segment i into out[0..5]
+    public static void compute(SegmentList segments, int i, double thickness, double[] out) {
+        int length = segments.length(i);
+        double half = length / 2.0;
+        int axis = segments.axis(i);
+        out[0] = segments.x(i) + (axis == PackedPos.AXIS_X ? half : 0);
+        out[1] = segments.y(i) + (axis == PackedPos.AXIS_Y ? half : 0);
+        out[2] = segments.z(i) + (axis == PackedPos.AXIS_Z ? half : 0);
+        out[3] = axis == PackedPos.AXIS_X ? length : thickness;
+        out[4] = axis == PackedPos.AXIS_Y ? length : thickness;
+        out[5] = axis == PackedPos.AXIS_Z ? length : thickness;
+    }
+}
@@ -0,0 +1,188 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Merged outline of a set of blocks that is kept up to date one block at a
+ * time instead of being recomputed.
+ *
+ * An edge only depends on the 2x2 blocks around it, so adding or removing a
+ * block can only change its own 12 edges. Each of those lies on its own line,
+ * and on that line at most the runs touching the edge are split or joined.
+ * Segments are stored in a {@link SegmentList} whose entries are replaced in
+ * place; runs are found by their first edge.
+ */
+public class IncrementalOutline {
+
+    private static final int NO_RUN = -1;
+
+    private final int layer;
+    private final LongHashSet blocks = new LongHashSet();
+    private final LongHashSet edges = new LongHashSet();
+    // First edge of each merged run -> its index in segments
+    private final LongIntMap runs = new LongIntMap();
+    private final SegmentList segments = new SegmentList();
+
+    public IncrementalOutline(int layer) {
+        this.layer = layer;
+    }
+
+    // Start over from the blocks of the bitmap
+    public void rebuild(VoxelBitmap bitmap, boolean useVector) {
+        blocks.clear();
+        edges.clear();
+        runs.clear();
+        segments.clear();
+        bitmap.forEach(blocks::add);
+        OutlineBuilder.computeEdges(bitmap, edges, useVector);
+        edges.forEach(edge -> {
+            int axis = PackedPos.axis(edge);
+            if (edges.contains(step(edge, axis, -1))) return;
+            int length = 1;
+            while (edges.contains(step(edge, axis, length))) {
+                length++;
+            }
+            addRun(edge, length);
+        });
+    }
+
+    // Add or remove one block; returns false if it already was in that state
+    public boolean set(int x, int y, int z, boolean present) {
+        long pos = PackedPos.pack(x, y, z);
+        if (present ? !blocks.add(pos) : !blocks.remove(pos)) return false;
+
+        // Vertical edges around the block in the XZ plane
+        updateEdge(x, y, z, PackedPos.AXIS_Y);
+        updateEdge(x + 1, y, z, PackedPos.AXIS_Y);
+        updateEdge(x, y, z + 1, PackedPos.AXIS_Y);
+        updateEdge(x + 1, y, z + 1, PackedPos.AXIS_Y);
+
+        // Edges along X in the YZ plane
+        updateEdge(x, y, z, PackedPos.AXIS_X);
+        updateEdge(x, y + 1, z, PackedPos.AXIS_X);
+        updateEdge(x, y, z + 1, PackedPos.AXIS_X);
+        updateEdge(x, y + 1, z + 1, PackedPos.AXIS_X);
+
+        // Edges along Z in the XY plane
+        updateEdge(x, y, z, PackedPos.AXIS_Z);
+        updateEdge(x + 1, y, z, PackedPos.AXIS_Z);
+        updateEdge(x, y + 1, z, PackedPos.AXIS_Z);
+        updateEdge(x + 1, y + 1, z, PackedPos.AXIS_Z);
+        return true;
+    }
+
+    public void clear() {
+        blocks.clear();
+        edges.clear();
+        runs.clear();
+        segments.clear();
+    }
+
+    // Current merged outline; owned by this object and changed by the next update
+    public SegmentList segments() {
+        return segments;
+    }
+
+    public int edgeCount() {
+        return edges.size();
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    private void updateEdge(int ex, int ey, int ez, int axis) {
+        long edge = PackedPos.edge(ex, ey, ez, axis);
+        boolean draw = shouldDraw(ex, ey, ez, axis);
+        if (draw == edges.contains(edge)) return;
+
+        long previous = step(edge, axis, -1);
+        long next = step(edge, axis, 1);
+        if (draw) {
+            edges.add(edge);
+            // Join the runs ending just before and starting just after into one
+            long start = edge;
+            int length = 1;
+            if (edges.contains(previous)) {
+                start = runStart(previous, axis);
+                length += removeRun(start);
+            }
+            if (edges.contains(next)) {
+                length += removeRun(next);
+            }
+            addRun(start, length);
+        } else {
+            // Split the run around the edge into the parts before and after it
+            long start = runStart(edge, axis);
+            int length = removeRun(start);
+            edges.remove(edge);
+            int before = offset(start, edge, axis);
+            if (before > 0) {
+                addRun(start, before);
+            }
+            if (length - before - 1 > 0) {
+                addRun(next, length - before - 1);
+            }
+        }
+    }
+
+    // Same 2x2 rule and neighbour order as OutlineBuilder's set-based checks
+    private boolean shouldDraw(int ex, int ey, int ez, int axis) {
+        boolean a, b, c, d;
+        if (axis == PackedPos.AXIS_Y) {
+            a = blocks.contains(PackedPos.pack(ex - 1, ey, ez - 1));
+            b = blocks.contains(PackedPos.pack(ex, ey, ez - 1));
+            c = blocks.contains(PackedPos.pack(ex - 1, ey, ez));
+        } else if (axis == PackedPos.AXIS_X) {
+            a = blocks.contains(PackedPos.pack(ex, ey - 1, ez - 1));
+            b = blocks.contains(PackedPos.pack(ex, ey, ez - 1));
+            c = blocks.contains(PackedPos.pack(ex, ey - 1, ez));
+        } else {
+            a = blocks.contains(PackedPos.pack(ex - 1, ey - 1, ez));
+            b = blocks.contains(PackedPos.pack(ex, ey - 1, ez));
+            c = blocks.contains(PackedPos.pack(ex - 1, ey, ez));
+        }
+        d = blocks.contains(PackedPos.pack(ex, ey, ez));
+        return OutlineBuilder.shouldDrawEdge(a, b, c, d);
+    }
+
+    // Walk back along the line to the first edge of the run holding edge
+    private long runStart(long edge, int axis) {
+        while (!runs.containsKey(edge)) {
+            edge = step(edge, axis, -1);
+        }
+        return edge;
+    }
+
+    private void addRun(long start, int length) {
+        runs.put(start, segments.size());
+        segments.add(PackedPos.axis(start), PackedPos.x(start), PackedPos.y(start), PackedPos.z(start),
+                length, layer);
+    }
+
+    // Drops the run starting at start and returns its length
+    private int removeRun(long start) {
+        int index = runs.remove(start, NO_RUN);
+        int length = segments.length(index);
+        int last = segments.size() - 1;
+        segments.removeSwap(index);
+        if (index != last) {
+            // The last run moved into the freed slot
+            runs.put(PackedPos.edge(segments.x(index), segments.y(index), segments.z(index),
+                    segments.axis(index)), index);
+        }
+        return length;
+    }
+
+    private static long step(long edge, int axis, int steps) {
+        return PackedPos.edge(
+                PackedPos.x(edge) + (axis == PackedPos.AXIS_X ? steps : 0),
+                PackedPos.y(edge) + (axis == PackedPos.AXIS_Y ? steps : 0),
+                PackedPos.z(edge) + (axis == PackedPos.AXIS_Z ? steps : 0),
+                axis);
+    }
+
+    private static int offset(long from, long to, int axis) {
+        if (axis == PackedPos.AXIS_X) return PackedPos.x(to) - PackedPos.x(from);
+        if (axis == PackedPos.AXIS_Y) return PackedPos.y(to) - PackedPos.y(from);
+        return PackedPos.z(to) - PackedPos.z(from);
+    }
+}
@@ -0,0 +1,189 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Selects the outline edges of a set of blocks: edges where the blocks around
+ * them don't form a flat face or a solid interior.
+ *
+ * The {@link VoxelBitmap} variant evaluates 64 edges per step with shifts and
+ * XORs of neighbouring rows, so its cost follows the box volume in words
+ * rather than the number of blocks. When the JVM has the incubating Vector API
+ * ({@code --add-modules jdk.incubator.vector}) and SIMD lanes for longs, the
+ * same pass can run several words per instruction.
+ */
+public final class OutlineBuilder {
+
+    // True when VectorOutline can be used on this JVM and CPU
+    public static final boolean VECTOR_SUPPORTED = detectVector();
+
+    private OutlineBuilder() {
+    }
+
+    // Adds every outline edge of the given blocks to edges, packed with PackedPos.edge
+    public static void computeEdges(LongHashSet blocks, LongHashSet edges) {
+        blocks.forEach(pos -> {
+            int x = PackedPos.x(pos);
+            int y = PackedPos.y(pos);
+            int z = PackedPos.z(pos);
+
+            // Vertical edges (along Y axis) - check 4 blocks around each edge in XZ plane
+            checkVerticalEdge(blocks, edges, x, y, z);         // -X,-Z corner
+            checkVerticalEdge(blocks, edges, x + 1, y, z);     // +X,-Z corner
+            checkVerticalEdge(blocks, edges, x, y, z + 1);     // -X,+Z corner
+            checkVerticalEdge(blocks, edges, x + 1, y, z + 1); // +X,+Z corner
+
+            // Horizontal edges along X axis - check 4 blocks around each edge in YZ plane
+            checkXEdge(blocks, edges, x, y, z);         // -Y,-Z corner
+            checkXEdge(blocks, edges, x, y + 1, z);     // +Y,-Z corner
+            checkXEdge(blocks, edges, x, y, z + 1);     // -Y,+Z corner
+            checkXEdge(blocks, edges, x, y + 1, z + 1); // +Y,+Z corner
+
+            // Horizontal edges along Z axis - check 4 blocks around each edge in XY plane
+            checkZEdge(blocks, edges, x, y, z);         // -X,-Y corner
+            checkZEdge(blocks, edges, x + 1, y, z);     // +X,-Y corner
+            checkZEdge(blocks, edges, x, y + 1, z);     // -X,+Y corner
+            checkZEdge(blocks, edges, x + 1, y + 1, z); // +X,+Y corner
+        });
+    }
+
+    // Same edges as computeEdges(LongHashSet, LongHashSet), read a row of 64 blocks at a time
+    public static void computeEdges(VoxelBitmap blocks, LongHashSet edges) {
+        long[] words = blocks.words();
+        int wordsPerRow = blocks.wordsPerRow();
+
+        // Row 0 in Y and Z is padding, so every edge has its four neighbour rows in range
+        for (int by = 1; by < blocks.sizeY(); by++) {
+            for (int bz = 1; bz < blocks.sizeZ(); bz++) {
+                int row = blocks.rowIndex(by, bz);              // (y,   z)
+                int rowBelow = blocks.rowIndex(by - 1, bz);     // (y-1, z)
+                int rowBack = blocks.rowIndex(by, bz - 1);      // (y,   z-1)
+                int rowDiag = blocks.rowIndex(by - 1, bz - 1);  // (y-1, z-1)
+
+                for (int w = 0; w < wordsPerRow; w++) {
+                    long here = words[row + w];
+                    long below = words[rowBelow + w];
+                    long back = words[rowBack + w];
+                    long diag = words[rowDiag + w];
+                    if ((here | below | back | diag) == 0 && (w == 0
+                            || (words[row + w - 1] | words[rowBelow + w - 1] | words[rowBack + w - 1]) >= 0)) {
+                        // Nothing here, and no block carried in from the previous word's top bit
+                        continue;
+                    }
+
+                    // Along X: the 4 blocks share x, spread over (y-1|y) x (z-1|z)
+                    emit(edges, blocks, drawMask(diag, back, below, here), w, by, bz, PackedPos.AXIS_X);
+
+                    // Along Y: the 4 blocks share y, spread over (x-1|x) x (z-1|z)
+                    long backShifted = shiftLeft(words, rowBack, w);
+                    long hereShifted = shiftLeft(words, row, w);
+                    emit(edges, blocks, drawMask(backShifted, back, hereShifted, here), w, by, bz, PackedPos.AXIS_Y);
+
+                    // Along Z: the 4 blocks share z, spread over (x-1|x) x (y-1|y)
+                    long belowShifted = shiftLeft(words, rowBelow, w);
+                    emit(edges, blocks, drawMask(belowShifted, below, hereShifted, here), w, by, bz, PackedPos.AXIS_Z);
+                }
+            }
+        }
+    }
+
+    // Bitmap outline on SIMD lanes when useVector is set and supported, otherwise word by word
+    public static void computeEdges(VoxelBitmap blocks, LongHashSet edges, boolean useVector) {
+        if (useVector && VECTOR_SUPPORTED) {
+            VectorOutline.computeEdges(blocks, edges);
+        } else {
+            computeEdges(blocks, edges);
+        }
+    }
+
+    // shouldDrawEdge for 64 edges at once: odd count, or two blocks on a diagonal
+    static long drawMask(long a, long b, long c, long d) {
+        return (a ^ b ^ c ^ d) | ((a ^ b) & (a ^ c) & ~(a ^ d));
+    }
+
+    // Word w of the row moved up one bit, so bit i holds the block at i - 1
+    private static long shiftLeft(long[] words, int row, int w) {
+        long shifted = words[row + w] << 1;
+        return w == 0 ? shifted : shifted | (words[row + w - 1] >>> 63);
+    }
+
+    static void emit(LongHashSet edges, VoxelBitmap blocks, long mask, int w, int by, int bz, int axis) {
+        int y = blocks.originY() + by;
+        int z = blocks.originZ() + bz;
+        int baseX = blocks.originX() + (w << 6);
+        while (mask != 0) {
+            edges.add(PackedPos.edge(baseX + Long.numberOfTrailingZeros(mask), y, z, axis));
+            mask &= mask - 1;
+        }
+    }
+
+    private static boolean detectVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            // A single lane would only add overhead over the scalar word loop
+            return VectorOutline.laneCount() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    // Edge goes from (ex, ey, ez) to (ex, ey+1, ez); check the 4 blocks around it in XZ plane
+    private static void checkVerticalEdge(LongHashSet blocks, LongHashSet edges, int ex, int ey, int ez) {
+        long edge = PackedPos.edge(ex, ey, ez, PackedPos.AXIS_Y);
+        if (edges.contains(edge)) return;
+
+        boolean a = blocks.contains(PackedPos.pack(ex - 1, ey, ez - 1));
+        boolean b = blocks.contains(PackedPos.pack(ex, ey, ez - 1));
+        boolean c = blocks.contains(PackedPos.pack(ex - 1, ey, ez));
+        boolean d = blocks.contains(PackedPos.pack(ex, ey, ez));
+
+        if (shouldDrawEdge(a, b, c, d)) {
+            edges.add(edge);
+        }
+    }
+
+    // Edge goes from (ex, ey, ez) to (ex+1, ey, ez); check the 4 blocks around it in YZ plane
+    private static void checkXEdge(LongHashSet blocks, LongHashSet edges, int ex, int ey, int ez) {
+        long edge = PackedPos.edge(ex, ey, ez, PackedPos.AXIS_X);
+        if (edges.contains(edge)) return;
+
+        boolean a = blocks.contains(PackedPos.pack(ex, ey - 1, ez - 1));
+        boolean b = blocks.contains(PackedPos.pack(ex, ey, ez - 1));
+        boolean c = blocks.contains(PackedPos.pack(ex, ey - 1, ez));
+        boolean d = blocks.contains(PackedPos.pack(ex, ey, ez));
+
+        if (shouldDrawEdge(a, b, c, d)) {
+            edges.add(edge);
+        }
+    }
+
+    // Edge goes from (ex, ey, ez) to (ex, ey, ez+1); check the 4 blocks around it in XY plane
+    private static void checkZEdge(LongHashSet blocks, LongHashSet edges, int ex, int ey, int ez) {
+        long edge = PackedPos.edge(ex, ey, ez, PackedPos.AXIS_Z);
+        if (edges.contains(edge)) return;
+
+        boolean a = blocks.contains(PackedPos.pack(ex - 1, ey - 1, ez));
+        boolean b = blocks.contains(PackedPos.pack(ex, ey - 1, ez));
+        boolean c = blocks.contains(PackedPos.pack(ex - 1, ey, ez));
+        boolean d = blocks.contains(PackedPos.pack(ex, ey, ez));
+
+        if (shouldDrawEdge(a, b, c, d)) {
+            edges.add(edge);
+        }
+    }
+
+    // Determine if edge should be drawn based on the 4 blocks around it
+    // a,b,c,d form a 2x2 grid: a-b / c-d (where a-d and b-c are diagonals)
+    public static boolean shouldDrawEdge(boolean a, boolean b, boolean c, boolean d) {
+        int count = (a ? 1 : 0) + (b ? 1 : 0) + (c ? 1 : 0) + (d ? 1 : 0);
+
+        if (count == 0 || count == 4) {
+            // No blocks or completely surrounded - don't draw
+            return false;
+        } else if (count == 1 || count == 3) {
+            // Single block corner or 3-block concave corner - draw
+            return true;
+        } else {
+            // count == 2: draw only if diagonal, not if adjacent
+            return (a && d && !b && !c) || (b && c && !a && !d);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Packs a block or edge position into a single long so sets of positions can
+ * be stored without allocating an object per entry.
+ *
+ * Layout (high to low): x (25 bits) | z (25 bits) | y (12 bits) | axis (2 bits).
+ * Coordinates are signed, so x/z cover +-16M and y covers -2048..2047.
+ * Block positions use axis {@link #AXIS_NONE}.
+ */
+public final class PackedPos {
+
+    public static final int AXIS_NONE = 0;
+    public static final int AXIS_X = 1;
+    public static final int AXIS_Y = 2;
+    public static final int AXIS_Z = 3;
+
+    private static final long XZ_MASK = (1L << 25) - 1;
+    private static final long Y_MASK = (1L << 12) - 1;
+
+    private PackedPos() {
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << 39) | ((z & XZ_MASK) << 14) | ((y & Y_MASK) << 2);
+    }
+
+    public static long edge(int x, int y, int z, int axis) {
+        return pack(x, y, z) | axis;
+    }
+
+    public static int x(long packed) {
+        return (int) (packed >> 39);
+    }
+
+    public static int z(long packed) {
+        return (int) (packed << 25 >> 39);
+    }
+
+    public static int y(long packed) {
+        return (int) (packed << 50 >> 52);
+    }
+
+    public static int axis(long packed) {
+        return (int) (packed & 3);
+    }
+}
@@ -0,0 +1,49 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Probes every block of one chunk section and returns the matches as packed
+ * local positions (y << 10 | z << 5 | x), one array per layer.
+ */
+public final class SectionScanner {
+
+    // Chunk width and section height (Hytale chunks are typically 32x32)
+    public static final int SIZE = 32;
+
+    private SectionScanner() {
+    }
+
+    public static short[] scan(VoxelSource source, int chunkMinX, int chunkMinZ, int sectionMinY) {
+        return scan((x, y, z) -> source.test(x, y, z) ? 0 : VoxelClassifier.NONE, 1,
+                chunkMinX, chunkMinZ, sectionMinY)[0];
+    }
+
+    // One pass over the section, sorting matches into layerCount arrays
+    public static short[][] scan(VoxelClassifier source, int layerCount, int chunkMinX, int chunkMinZ, int sectionMinY) {
+        short[][] found = new short[layerCount][16];
+        int[] counts = new int[layerCount];
+
+        for (int lx = 0; lx < SIZE; lx++) {
+            for (int lz = 0; lz < SIZE; lz++) {
+                for (int ly = 0; ly < SIZE; ly++) {
+                    int layer = source.layer(chunkMinX + lx, sectionMinY + ly, chunkMinZ + lz);
+                    if (layer < 0 || layer >= layerCount) continue;
+                    int count = counts[layer];
+                    if (count == found[layer].length) {
+                        short[] grown = new short[count * 2];
+                        System.arraycopy(found[layer], 0, grown, 0, count);
+                        found[layer] = grown;
+                    }
+                    found[layer][count] = (short) ((ly << 10) | (lz << 5) | lx);
+                    counts[layer] = count + 1;
+                }
+            }
+        }
+
+        short[][] result = new short[layerCount][];
+        for (int layer = 0; layer < layerCount; layer++) {
+            result[layer] = new short[counts[layer]];
+            System.arraycopy(found[layer], 0, result[layer], 0, counts[layer]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,155 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of axis-aligned line segments stored as parallel int arrays.
+ * A segment starts at (x, y, z) and runs length blocks along its axis, and
+ * belongs to a highlight layer (0 unless given).
+ */
+public class SegmentList {
+
+    private int[] axis;
+    private int[] x;
+    private int[] y;
+    private int[] z;
+    private int[] length;
+    private int[] layer;
+    private int size;
+
+    public SegmentList() {
+        this(64);
+    }
+
+    public SegmentList(int capacity) {
+        capacity = Math.max(capacity, 4);
+        axis = new int[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        z = new int[capacity];
+        length = new int[capacity];
+        layer = new int[capacity];
+    }
+
+    public void add(int axis, int x, int y, int z, int length) {
+        add(axis, x, y, z, length, 0);
+    }
+
+    public void add(int axis, int x, int y, int z, int length, int layer) {
+        if (size == this.axis.length) {
+            ensureCapacity(size * 2);
+        }
+        this.axis[size] = axis;
+        this.x[size] = x;
+        this.y[size] = y;
+        this.z[size] = z;
+        this.length[size] = length;
+        this.layer[size] = layer;
+        size++;
+    }
+
+    public void addAll(SegmentList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.axis, 0, axis, size, other.size);
+        System.arraycopy(other.x, 0, x, size, other.size);
+        System.arraycopy(other.y, 0, y, size, other.size);
+        System.arraycopy(other.z, 0, z, size, other.size);
+        System.arraycopy(other.length, 0, length, size, other.size);
+        System.arraycopy(other.layer, 0, layer, size, other.size);
+        size += other.size;
+    }
+
+    // Grow once to hold at least capacity segments, so adding that many doesn't copy the arrays repeatedly
+    public void ensureCapacity(int capacity) {
+        if (capacity <= axis.length) return;
+        axis = Arrays.copyOf(axis, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        length = Arrays.copyOf(length, capacity);
+        layer = Arrays.copyOf(layer, capacity);
+    }
+
+    // Removes segment i by moving the last segment into its place
+    public void removeSwap(int i) {
+        int last = --size;
+        axis[i] = axis[last];
+        x[i] = x[last];
+        y[i] = y[last];
+        z[i] = z[last];
+        length[i] = length[last];
+        layer[i] = layer[last];
+    }
+
+    // Adds the 12 edges of a block-aligned box; max coordinates are exclusive
+    public void addBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        addBox(minX, minY, minZ, maxX, maxY, maxZ, 0);
+    }
+
+    public void addBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int layer) {
+        int lenX = maxX - minX;
+        int lenY = maxY - minY;
+        int lenZ = maxZ - minZ;
+
+        // Bottom edges
+        add(PackedPos.AXIS_X, minX, minY, minZ, lenX, layer);
+        add(PackedPos.AXIS_X, minX, minY, maxZ, lenX, layer);
+        add(PackedPos.AXIS_Z, minX, minY, minZ, lenZ, layer);
+        add(PackedPos.AXIS_Z, maxX, minY, minZ, lenZ, layer);
+
+        // Top edges
+        add(PackedPos.AXIS_X, minX, maxY, minZ, lenX, layer);
+        add(PackedPos.AXIS_X, minX, maxY, maxZ, lenX, layer);
+        add(PackedPos.AXIS_Z, minX, maxY, minZ, lenZ, layer);
+        add(PackedPos.AXIS_Z, maxX, maxY, minZ, lenZ, layer);
+
+        // Vertical edges
+        add(PackedPos.AXIS_Y, minX, minY, minZ, lenY, layer);
+        add(PackedPos.AXIS_Y, maxX, minY, minZ, lenY, layer);
+        add(PackedPos.AXIS_Y, minX, minY, maxZ, lenY, layer);
+        add(PackedPos.AXIS_Y, maxX, minY, maxZ, lenY, layer);
+    }
+
+    // Identity of segment i; equal segments always produce the same key
+    public long key(int i) {
+        long h = PackedPos.edge(x[i], y[i], z[i], axis[i]) * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 29) ^ (((long) length[i] << 8 | layer[i]) * 0xC2B2AE3D27D4EB4FL);
+        return h ^ (h >>> 32);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int axis(int i) {
+        return axis[i];
+    }
+
+    public int x(int i) {
+        return x[i];
+    }
+
+    public int y(int i) {
+        return y[i];
+    }
+
+    public int z(int i) {
+        return z[i];
+    }
+
+    public int length(int i) {
+        return length[i];
+    }
+
+    public int layer(int i) {
+        return layer[i];
+    }
+}
@@ -0,0 +1,136 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Built shapes keyed by segment geometry and color, so every viewer of a
+ * shape gets the same instance and a shape is only built again once it has
+ * dropped out of the cache.
+ *
+ * Keys are exact: the segment's start and axis as a {@link PackedPos} edge,
+ * plus its length and a packed color. Entries live in two fixed-size
+ * generations; a hit in the older one moves the shape to the current one,
+ * and when the current one fills up it becomes the older one and the oldest
+ * shapes are dropped. A frame of up to generationSize shapes is therefore
+ * served from the cache on every later pass. Lookups allocate nothing but
+ * what the builder does on a miss. Not thread-safe.
+ */
+public final class ShapeCache<S> {
+
+    @FunctionalInterface
+    public interface Builder<S> {
+        // A new shape drawing segment i; it is handed out again for every later lookup of the same key
+        S build(SegmentList segments, int i);
+    }
+
+    private final Builder<S> builder;
+    private Generation<S> current;
+    private Generation<S> previous;
+    private long built = 0;
+    private long hits = 0;
+
+    public ShapeCache(int generationSize, Builder<S> builder) {
+        this.builder = builder;
+        this.current = new Generation<>(generationSize);
+        this.previous = new Generation<>(generationSize);
+    }
+
+    // Shape drawing segment i in the color packed in colorKey
+    public S get(SegmentList segments, int i, int colorKey) {
+        long edge = PackedPos.edge(segments.x(i), segments.y(i), segments.z(i), segments.axis(i));
+        long shape = ((long) segments.length(i) << 32) | (colorKey & 0xFFFFFFFFL);
+
+        S cached = current.get(edge, shape);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        cached = previous.get(edge, shape);
+        if (cached != null) {
+            hits++;
+        } else {
+            built++;
+            cached = builder.build(segments, i);
+        }
+        if (current.isFull()) {
+            Generation<S> recycled = previous;
+            previous = current;
+            current = recycled;
+            current.clear();
+        }
+        current.put(edge, shape, cached);
+        return cached;
+    }
+
+    // Shapes built so far because no cached one matched
+    public long built() {
+        return built;
+    }
+
+    // Lookups answered from the cache so far
+    public long hits() {
+        return hits;
+    }
+
+    // Drop every shape
+    public void clear() {
+        current.clear();
+        previous.clear();
+    }
+
+    // Open-addressing table with linear probing; an empty slot has no shape
+    private static final class Generation<S> {
+        private final long[] edges;
+        private final long[] shapes;
+        private final Object[] values;
+        private final int mask;
+        private final int limit;
+        private int size = 0;
+
+        Generation(int size) {
+            int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 2;
+            edges = new long[capacity];
+            shapes = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            limit = capacity / 2;
+        }
+
+        @SuppressWarnings("unchecked")
+        S get(long edge, long shape) {
+            int slot = mix(edge, shape) & mask;
+            Object value;
+            while ((value = values[slot]) != null) {
+                if (edges[slot] == edge && shapes[slot] == shape) return (S) value;
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        // Only called for keys that aren't in the table
+        void put(long edge, long shape, S value) {
+            int slot = mix(edge, shape) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            edges[slot] = edge;
+            shapes[slot] = shape;
+            values[slot] = value;
+            size++;
+        }
+
+        boolean isFull() {
+            return size >= limit;
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        private static int mix(long edge, long shape) {
+            long h = edge * 0x9E3779B97F4A7C15L ^ shape * 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
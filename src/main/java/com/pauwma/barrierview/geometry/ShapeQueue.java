@@ -0,0 +1,111 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Segments of a frame waiting to be sent, nearest to the viewer first.
+ *
+ * Entries are (squared distance << 32 | segment index) in an array that is
+ * kept between frames and sorted in place, so filling and draining a queue
+ * allocates nothing once the array has grown to the largest frame seen.
+ */
+public final class ShapeQueue {
+
+    // Ranges at most this long are finished with insertion sort
+    private static final int INSERTION_SORT_MAX = 24;
+
+    private long[] entries = new long[0];
+    private int start = 0;
+    private int end = 0;
+    private SegmentList segments;
+
+    // Queue every segment whose key isn't in skip (pass null to queue all), replacing what was queued
+    public void fill(SegmentList segments, LongHashSet skip, double viewerX, double viewerY, double viewerZ) {
+        if (entries.length < segments.size()) {
+            entries = new long[segments.size()];
+        }
+        int count = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (skip != null && skip.contains(segments.key(i))) continue;
+            entries[count++] = (distanceSq(segments, i, viewerX, viewerY, viewerZ) << 32) | i;
+        }
+        sort(entries, 0, count - 1);
+        this.segments = count > 0 ? segments : null;
+        start = 0;
+        end = count;
+    }
+
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    // Segment list the queued indices refer to; null when empty
+    public SegmentList segments() {
+        return segments;
+    }
+
+    // Index of the nearest segment still queued, removing it; check isEmpty first
+    public int next() {
+        int i = (int) entries[start++];
+        if (start == end) {
+            segments = null;
+        }
+        return i;
+    }
+
+    // Squared distance from the viewer to the segment's midpoint, clamped to fit 31 bits
+    public static long distanceSq(SegmentList segments, int i, double viewerX, double viewerY, double viewerZ) {
+        double half = segments.length(i) / 2.0;
+        int axis = segments.axis(i);
+        double dx = segments.x(i) + (axis == PackedPos.AXIS_X ? half : 0) - viewerX;
+        double dy = segments.y(i) + (axis == PackedPos.AXIS_Y ? half : 0) - viewerY;
+        double dz = segments.z(i) + (axis == PackedPos.AXIS_Z ? half : 0) - viewerZ;
+        return (long) Math.min(Integer.MAX_VALUE, dx * dx + dy * dy + dz * dz);
+    }
+
+    // Quicksort of a[lo..hi] without allocating (Arrays.sort may take a merge buffer); recursing into the
+    // smaller side keeps the stack logarithmic
+    static void sort(long[] a, int lo, int hi) {
+        while (hi - lo >= INSERTION_SORT_MAX) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three as the pivot
+            if (a[mid] < a[lo]) swap(a, mid, lo);
+            if (a[hi] < a[lo]) swap(a, hi, lo);
+            if (a[hi] < a[mid]) swap(a, hi, mid);
+            long pivot = a[mid];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    swap(a, i++, j--);
+                }
+            }
+            if (j - lo < hi - i) {
+                sort(a, lo, j);
+                lo = i;
+            } else {
+                sort(a, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            long value = a[i];
+            int j = i - 1;
+            while (j >= lo && a[j] > value) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
@@ -0,0 +1,99 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Which shapes a player's client is showing, and what has to be sent to bring
+ * it in line with a new frame.
+ *
+ * Shapes are sent with a long lifetime and re-sent once the last full send is
+ * refreshAfterMs old, shortly before the client drops them. New shapes are
+ * sent on their own; since the protocol can't remove a single shape, any
+ * removal (or a color change in any layer, which would otherwise leave the
+ * old colors on screen until they expire) clears the client and re-sends the
+ * surviving set.
+ *
+ * Whatever has to be sent is queued nearest-first; the caller drains the
+ * queue at its own pace and reports each shape it sent. Once its tables have
+ * grown to the frame size, an update allocates nothing.
+ */
+public final class ShapeSync {
+
+    private static final int[] NO_COLORS = new int[0];
+
+    private final long refreshAfterMs;
+
+    // Keys of shapes on the client, and scratch space for the incoming frame's keys
+    private final LongHashSet sent = new LongHashSet();
+    private final LongHashSet next = new LongHashSet();
+    private int[] sentColors = NO_COLORS;
+    // Scratch for the incoming frame's colors; swapped with sentColors after each update
+    private int[] colorKeys = NO_COLORS;
+    private long refreshedAt = 0;
+
+    // Shapes still to send, nearest first
+    private final ShapeQueue pending = new ShapeQueue();
+
+    public ShapeSync(long refreshAfterMs) {
+        this.refreshAfterMs = refreshAfterMs;
+    }
+
+    // Scratch for the next frame's colors, one packed 0xRRGGBB per layer; fill it in before calling update
+    public int[] colorKeys(int layerCount) {
+        if (colorKeys.length != layerCount) {
+            colorKeys = new int[layerCount];
+        }
+        return colorKeys;
+    }
+
+    // Compare the frame, in the colors just written to colorKeys, with what the client has and queue what
+    // has to be sent. Returns true if the client's shapes must be cleared before the queue is sent
+    public boolean update(SegmentList segments, long now, double viewerX, double viewerY, double viewerZ) {
+        next.clear();
+        int common = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            long key = segments.key(i);
+            if (next.add(key) && sent.contains(key)) {
+                common++;
+            }
+        }
+
+        boolean removed = common < sent.size();
+        boolean recolored = !Arrays.equals(colorKeys, sentColors) && !sent.isEmpty();
+        boolean expiring = now - refreshedAt >= refreshAfterMs;
+        boolean clear = removed || recolored;
+        if (clear) {
+            sent.clear();
+        }
+
+        // Queue everything on a refresh, otherwise only shapes the client doesn't have yet
+        boolean resendAll = clear || expiring;
+        if (resendAll) {
+            refreshedAt = now;
+        }
+        pending.fill(segments, resendAll ? null : sent, viewerX, viewerY, viewerZ);
+        int[] previousColors = sentColors;
+        sentColors = colorKeys;
+        colorKeys = previousColors;
+        return clear;
+    }
+
+    // Shapes still to send, nearest first; report each one sent with sent()
+    public ShapeQueue pending() {
+        return pending;
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // Packed color the shapes of a layer are drawn in since the last update
+    public int colorKey(int layer) {
+        return sentColors[layer];
+    }
+
+    // Segment i is on the client now
+    public void sent(SegmentList segments, int i) {
+        sent.add(segments.key(i));
+    }
+}
@@ -0,0 +1,104 @@
+package com.pauwma.barrierview.geometry;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link OutlineBuilder#computeEdges(VoxelBitmap, LongHashSet)} on SIMD lanes:
+ * each step evaluates the 2x2 rule for several bitmap words (64 edges each)
+ * at once.
+ *
+ * The bitmap is treated as one flat array. Every neighbour row sits at a fixed
+ * offset from the current word, and the word before it supplies the bit carried
+ * in by the X shift (the top bit of a row's last word is always empty), so the
+ * whole box is a single stencil pass.
+ *
+ * Only touch this class when {@link OutlineBuilder#VECTOR_SUPPORTED} is true;
+ * it fails to load unless the JVM runs with --add-modules jdk.incubator.vector.
+ */
+final class VectorOutline {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    // Per-thread lane buffers for the X, Y and Z masks of one step
+    private static final ThreadLocal<long[]> MASKS = ThreadLocal.withInitial(() -> new long[SPECIES.length() * 3]);
+
+    private VectorOutline() {
+    }
+
+    static int laneCount() {
+        return SPECIES.length();
+    }
+
+    static void computeEdges(VoxelBitmap blocks, LongHashSet edges) {
+        long[] words = blocks.words();
+        int back = blocks.wordsPerRow();                   // (y,   z-1)
+        int below = blocks.sizeZ() * blocks.wordsPerRow(); // (y-1, z)
+        int diag = below + back;                           // (y-1, z-1)
+        int end = blocks.sizeY() * below;
+
+        long[] masks = MASKS.get();
+        int lanes = SPECIES.length();
+        int i = diag;
+        for (int bound = diag + SPECIES.loopBound(end - diag); i < bound; i += lanes) {
+            LongVector here = LongVector.fromArray(SPECIES, words, i);
+            LongVector hereBelow = LongVector.fromArray(SPECIES, words, i - below);
+            LongVector hereBack = LongVector.fromArray(SPECIES, words, i - back);
+            LongVector hereDiag = LongVector.fromArray(SPECIES, words, i - diag);
+            LongVector hereShifted = shiftLeft(words, i);
+            LongVector backShifted = shiftLeft(words, i - back);
+            LongVector belowShifted = shiftLeft(words, i - below);
+
+            LongVector xMask = drawMask(hereDiag, hereBack, hereBelow, here);
+            LongVector yMask = drawMask(backShifted, hereBack, hereShifted, here);
+            LongVector zMask = drawMask(belowShifted, hereBelow, hereShifted, here);
+            if (!xMask.or(yMask).or(zMask).compare(VectorOperators.NE, 0L).anyTrue()) continue;
+
+            xMask.intoArray(masks, 0);
+            yMask.intoArray(masks, lanes);
+            zMask.intoArray(masks, lanes * 2);
+            for (int lane = 0; lane < lanes; lane++) {
+                emit(edges, blocks, i + lane, masks[lane], masks[lanes + lane], masks[lanes * 2 + lane]);
+            }
+        }
+
+        // Remaining words one at a time
+        for (; i < end; i++) {
+            long here = words[i];
+            long hereBelow = words[i - below];
+            long hereBack = words[i - back];
+            long hereShifted = (here << 1) | (words[i - 1] >>> 63);
+            emit(edges, blocks, i,
+                    OutlineBuilder.drawMask(words[i - diag], hereBack, hereBelow, here),
+                    OutlineBuilder.drawMask((hereBack << 1) | (words[i - back - 1] >>> 63), hereBack, hereShifted, here),
+                    OutlineBuilder.drawMask((hereBelow << 1) | (words[i - below - 1] >>> 63), hereBelow, hereShifted, here));
+        }
+    }
+
+    private static LongVector shiftLeft(long[] words, int i) {
+        return LongVector.fromArray(SPECIES, words, i).lanewise(VectorOperators.LSHL, 1)
+                .or(LongVector.fromArray(SPECIES, words, i - 1).lanewise(VectorOperators.LSHR, 63));
+    }
+
+    // Same rule as OutlineBuilder.drawMask, lane-wise
+    private static LongVector drawMask(LongVector a, LongVector b, LongVector c, LongVector d) {
+        LongVector ab = a.lanewise(VectorOperators.XOR, b);
+        LongVector ac = a.lanewise(VectorOperators.XOR, c);
+        LongVector ad = a.lanewise(VectorOperators.XOR, d);
+        return ab.lanewise(VectorOperators.XOR, c.lanewise(VectorOperators.XOR, d))
+                .or(ab.and(ac).and(ad.not()));
+    }
+
+    // Map flat word index i back to its row and word, then add the set edges of all three axes
+    private static void emit(LongHashSet edges, VoxelBitmap blocks, int i, long xMask, long yMask, long zMask) {
+        if ((xMask | yMask | zMask) == 0) return;
+        int w = i % blocks.wordsPerRow();
+        int row = i / blocks.wordsPerRow();
+        int bz = row % blocks.sizeZ();
+        int by = row / blocks.sizeZ();
+        OutlineBuilder.emit(edges, blocks, xMask, w, by, bz, PackedPos.AXIS_X);
+        OutlineBuilder.emit(edges, blocks, yMask, w, by, bz, PackedPos.AXIS_Y);
+        OutlineBuilder.emit(edges, blocks, zMask, w, by, bz, PackedPos.AXIS_Z);
+    }
+}
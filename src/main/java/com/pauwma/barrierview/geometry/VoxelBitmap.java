@@ -0,0 +1,118 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Dense bitmap of a box of blocks, one bit per block in 64-bit words along X.
+ *
+ * The box is padded by one empty block on every side, so outline code can read
+ * the neighbours of any block without bounds checks. Row (y, z) holds
+ * {@link #wordsPerRow()} words; bit i of a row is the block at minX - 1 + i.
+ * Instances are meant to be reused through {@link #reset}.
+ */
+public final class VoxelBitmap {
+
+    private long[] words = new long[0];
+    private int originX, originY, originZ;
+    private int sizeX, sizeY, sizeZ;
+    private int wordsPerRow;
+
+    // Clear the bitmap and resize it to cover [minX, minX+sizeX) x [minY, minY+sizeY) x [minZ, minZ+sizeZ)
+    public void reset(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.originX = minX - 1;
+        this.originY = minY - 1;
+        this.originZ = minZ - 1;
+        this.sizeX = sizeX + 2;
+        this.sizeY = sizeY + 2;
+        this.sizeZ = sizeZ + 2;
+        // One spare bit at the top so shifting a row left by one never drops a block
+        this.wordsPerRow = (this.sizeX >> 6) + 1;
+
+        int length = wordsPerRow * this.sizeY * this.sizeZ;
+        if (words.length < length) {
+            words = new long[length];
+        } else {
+            Arrays.fill(words, 0, length, 0L);
+        }
+    }
+
+    // Blocks outside the box are ignored
+    public void set(int x, int y, int z) {
+        int bx = x - originX;
+        int by = y - originY;
+        int bz = z - originZ;
+        if (bx < 1 || by < 1 || bz < 1 || bx >= sizeX - 1 || by >= sizeY - 1 || bz >= sizeZ - 1) return;
+        words[rowIndex(by, bz) + (bx >> 6)] |= 1L << bx;
+    }
+
+    public boolean get(int x, int y, int z) {
+        int bx = x - originX;
+        int by = y - originY;
+        int bz = z - originZ;
+        if (bx < 0 || by < 0 || bz < 0 || bx >= sizeX || by >= sizeY || bz >= sizeZ) return false;
+        return (words[rowIndex(by, bz) + (bx >> 6)] & (1L << bx)) != 0;
+    }
+
+    public boolean isEmpty() {
+        int length = wordsPerRow * sizeY * sizeZ;
+        for (int i = 0; i < length; i++) {
+            if (words[i] != 0) return false;
+        }
+        return true;
+    }
+
+    // Calls consumer with every set block, packed with PackedPos.pack
+    public void forEach(LongConsumer consumer) {
+        for (int by = 1; by < sizeY - 1; by++) {
+            for (int bz = 1; bz < sizeZ - 1; bz++) {
+                int row = rowIndex(by, bz);
+                for (int w = 0; w < wordsPerRow; w++) {
+                    long bits = words[row + w];
+                    while (bits != 0) {
+                        int bx = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        consumer.accept(PackedPos.pack(originX + bx, originY + by, originZ + bz));
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    // Index of the first word of row (by, bz), in box-local padded coordinates
+    int rowIndex(int by, int bz) {
+        return (by * sizeZ + bz) * wordsPerRow;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int originX() {
+        return originX;
+    }
+
+    int originY() {
+        return originY;
+    }
+
+    int originZ() {
+        return originZ;
+    }
+
+    int sizeX() {
+        return sizeX;
+    }
+
+    int sizeY() {
+        return sizeY;
+    }
+
+    int sizeZ() {
+        return sizeZ;
+    }
+
+    int wordsPerRow() {
+        return wordsPerRow;
+    }
+}
@@ -0,0 +1,15 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Sorts the block at a world position into a highlight layer, so one scan can
+ * fill several layers at once.
+ */
+@FunctionalInterface
+public interface VoxelClassifier {
+
+    // Returned for blocks that belong to no layer
+    int NONE = -1;
+
+    // Layer of the block in [0, layerCount), or NONE
+    int layer(int x, int y, int z);
+}
@@ -0,0 +1,10 @@
+package com.pauwma.barrierview.geometry;
+
+/**
+ * Answers whether the block at a world position is one we're looking for.
+ * Lets the scan run against live chunks or synthetic volumes alike.
+ */
+@FunctionalInterface
+public interface VoxelSource {
+    boolean test(int x, int y, int z);
+}
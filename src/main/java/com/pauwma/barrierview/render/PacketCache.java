@@ -0,0 +1,58 @@
+package com.pauwma.barrierview.render;
+
+import com.hypixel.hytale.math.matrix.Matrix4d;
+import com.hypixel.hytale.protocol.Vector3f;
+import com.hypixel.hytale.protocol.packets.player.DisplayDebug;
+import com.pauwma.barrierview.geometry.SegmentList;
+import com.pauwma.barrierview.geometry.ShapeCache;
+
+/**
+ * Ready-to-write DisplayDebug packets keyed by segment geometry and color, so
+ * every viewer of a shape is sent the same packet instance and a shape is
+ * only built again once it has dropped out of the cache. The keying and
+ * eviction are {@link ShapeCache}'s; this class builds the packets. Not
+ * thread-safe: each world keeps its own instance and only uses it on the
+ * world thread.
+ */
+public final class PacketCache {
+
+    // Distinct shapes per generation; a cache keeps up to two generations
+    private static final int GENERATION_SIZE = 32_768;
+
+    private final float lifetime;
+    private final ShapeCache<DisplayDebug> packets;
+
+    // Color of the lookup in progress, and scratch space for building its packet
+    private Vector3f color;
+    private final double[] transform = new double[6];
+    private final Matrix4d matrix = new Matrix4d();
+
+    public PacketCache() {
+        this(ShapeStream.SHAPE_LIFETIME, GENERATION_SIZE);
+    }
+
+    PacketCache(float lifetime, int generationSize) {
+        this.lifetime = lifetime;
+        this.packets = new ShapeCache<>(generationSize, this::build);
+    }
+
+    // Packet drawing segment i in color, whose RGB is packed in colorKey
+    DisplayDebug packet(SegmentList segments, int i, Vector3f color, int colorKey) {
+        this.color = color;
+        return packets.get(segments, i, colorKey);
+    }
+
+    // Packets built so far because no cached one matched
+    long built() {
+        return packets.built();
+    }
+
+    // Drop every packet
+    public void clear() {
+        packets.clear();
+    }
+
+    private DisplayDebug build(SegmentList segments, int i) {
+        return ShapeRenderer.segmentPacket(segments, i, color, lifetime, transform, matrix);
+    }
+}
@@ -0,0 +1,51 @@
+package com.pauwma.barrierview.render;
+
+import com.hypixel.hytale.math.matrix.Matrix4d;
+import com.hypixel.hytale.protocol.DebugShape;
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.Vector3f;
+import com.hypixel.hytale.protocol.packets.player.ClearDebugShapes;
+import com.hypixel.hytale.protocol.packets.player.DisplayDebug;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.pauwma.barrierview.geometry.EdgeTransform;
+import com.pauwma.barrierview.geometry.SegmentList;
+
+/**
+ * Turns segments into DisplayDebug cubes and writes packets to a player.
+ * Packets are built for the {@link PacketCache}, which {@link ShapeStream}
+ * writes through, so a packet is built once and written many times.
+ */
+public final class ShapeRenderer {
+
+    // Edge thickness for wireframe
+    public static final double EDGE_THICKNESS = 0.04;
+
+    private ShapeRenderer() {
+    }
+
+    public static void write(PlayerRef playerRef, DisplayDebug packet) {
+        playerRef.getPacketHandler().write((Packet) packet);
+    }
+
+    // A new packet drawing segment i; not modified after this, so it can be written any number of times.
+    // transform (6 doubles) and matrix are scratch space; the packet takes a copy of the matrix data
+    static DisplayDebug segmentPacket(SegmentList segments, int i, Vector3f color, float lifetime,
+                                      double[] transform, Matrix4d matrix) {
+        EdgeTransform.compute(segments, i, EDGE_THICKNESS, transform);
+        return edgePacket(matrix, transform[0], transform[1], transform[2], transform[3], transform[4], transform[5],
+                color, lifetime);
+    }
+
+    private static DisplayDebug edgePacket(Matrix4d matrix, double cx, double cy, double cz,
+                                           double sx, double sy, double sz, Vector3f color, float lifetime) {
+        matrix.identity();
+        matrix.translate(cx, cy, cz);
+        matrix.scale(sx, sy, sz);
+        return new DisplayDebug(DebugShape.Cube, matrix.asFloatData(), color, lifetime, true, null);
+    }
+
+    public static void clear(PlayerRef playerRef) {
+        ClearDebugShapes packet = new ClearDebugShapes();
+        playerRef.getPacketHandler().write((Packet) packet);
+    }
+}
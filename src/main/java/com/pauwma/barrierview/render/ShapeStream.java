@@ -0,0 +1,92 @@
+package com.pauwma.barrierview.render;
+
+import com.hypixel.hytale.protocol.Vector3f;
+import com.hypixel.hytale.protocol.packets.player.DisplayDebug;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.pauwma.barrierview.geometry.SegmentList;
+import com.pauwma.barrierview.geometry.ShapeQueue;
+import com.pauwma.barrierview.geometry.ShapeSync;
+
+/**
+ * Keeps a player's client in line with their frames, writing at most a
+ * budget of shapes per tick.
+ *
+ * {@link ShapeSync} decides what has to be sent: new shapes on their own, a
+ * clear and the surviving set after a removal or a color change, and
+ * everything again shortly before the client drops the shapes. Queued shapes
+ * go out nearest-first, so a dense field streams in over several ticks
+ * instead of arriving in one burst. Packets come from the world's
+ * {@link PacketCache}, passed in by the caller, so players seeing the same
+ * shape in the same color are written the same packet. Once its tables have
+ * grown to the frame size, a stream allocates nothing per shape.
+ */
+public class ShapeStream {
+
+    // How long the client keeps a shape, in seconds
+    public static final float SHAPE_LIFETIME = 10.0f;
+
+    // Re-send everything once the oldest batch is this old
+    private static final long REFRESH_AFTER_MS = 7_000L;
+
+    private final ShapeSync shapes = new ShapeSync(REFRESH_AFTER_MS);
+    private int lastBuiltCount = 0;
+
+    // Colors the queued shapes are drawn in, per layer
+    private Vector3f[] pendingColors;
+
+    // Bring the client in line with segments, nearest first, each drawn in its layer's color;
+    // returns the number of packets written
+    public synchronized int sync(PlayerRef playerRef, PacketCache cache, SegmentList segments, Vector3f[] layerColors,
+                                 long now, double viewerX, double viewerY, double viewerZ, int budget) {
+        int[] colorKeys = shapes.colorKeys(layerColors.length);
+        for (int layer = 0; layer < layerColors.length; layer++) {
+            colorKeys[layer] = packColor(layerColors[layer]);
+        }
+        int packets = 0;
+        if (shapes.update(segments, now, viewerX, viewerY, viewerZ)) {
+            ShapeRenderer.clear(playerRef);
+            packets++;
+        }
+        pendingColors = layerColors;
+        packets += flushPending(playerRef, cache, budget);
+        return packets;
+    }
+
+    // Send up to budget more queued shapes; returns the number of packets written
+    public synchronized int flush(PlayerRef playerRef, PacketCache cache, int budget) {
+        return flushPending(playerRef, cache, budget);
+    }
+
+    public synchronized boolean hasPending() {
+        return shapes.hasPending();
+    }
+
+    // Packets of the last sync or flush that weren't in the packet cache yet
+    public synchronized int getLastBuiltCount() {
+        return lastBuiltCount;
+    }
+
+    private int flushPending(PlayerRef playerRef, PacketCache cache, int budget) {
+        ShapeQueue pending = shapes.pending();
+        long built = cache.built();
+        int packets = 0;
+        while (!pending.isEmpty() && packets < budget) {
+            SegmentList segments = pending.segments();
+            int i = pending.next();
+            int layer = segments.layer(i);
+            DisplayDebug packet = cache.packet(segments, i, pendingColors[layer], shapes.colorKey(layer));
+            ShapeRenderer.write(playerRef, packet);
+            shapes.sent(segments, i);
+            packets++;
+        }
+        lastBuiltCount = (int) (cache.built() - built);
+        return packets;
+    }
+
+    private static int packColor(Vector3f color) {
+        int r = Math.round(color.x * 255) & 0xFF;
+        int g = Math.round(color.y * 255) & 0xFF;
+        int b = Math.round(color.z * 255) & 0xFF;
+        return (r << 16) | (g << 8) | b;
+    }
+}
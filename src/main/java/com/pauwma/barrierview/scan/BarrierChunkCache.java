@@ -0,0 +1,421 @@
+package com.pauwma.barrierview.scan;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.pauwma.barrierview.geometry.SectionScanner;
+import com.pauwma.barrierview.geometry.VoxelClassifier;
+import com.pauwma.barrierview.stats.BarrierStats;
+import com.pauwma.barrierview.stats.StatsRegistry;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches highlighted block positions per (world, chunk) so a refresh only
+ * probes blocks in sections that changed since they were last scanned.
+ *
+ * Sections are 32 blocks tall and scanned independently, so a player only pays
+ * for the Y range they can see. One scan sorts a section's blocks into every
+ * {@link BlockLayers} layer, and a section whose palette holds none of the
+ * layers' blocks is recorded as empty without probing any of its blocks.
+ *
+ * With a {@link BarrierIndex} attached, sections seen for the first time are
+ * read from the index when it has them, and every live scan is written back
+ * to it. A placed or broken block is re-classified on its own and patched into
+ * a copy of its cached section instead of rescanning it. Entries are dropped
+ * when the chunk instance was reloaded, or when the cache grows past its
+ * memory budget (least recently used first).
+ */
+public class BarrierChunkCache {
+
+    // Chunk size (Hytale chunks are typically 32x32)
+    public static final int CHUNK_SIZE = SectionScanner.SIZE;
+
+    // Height of one cached section
+    public static final int SECTION_HEIGHT = SectionScanner.SIZE;
+
+    // Worlds span y = 0 until WORLD_HEIGHT
+    public static final int WORLD_HEIGHT = ChunkUtil.HEIGHT;
+    public static final int SECTION_COUNT = (WORLD_HEIGHT + SECTION_HEIGHT - 1) / SECTION_HEIGHT;
+
+    // Upper bound for cached data, estimated from stored positions
+    private static final long MAX_BYTES = 16L * 1024 * 1024;
+
+    // Edits that don't fire block events (commands, prefabs) show up after this
+    private static final long MAX_AGE_MS = 30_000L;
+
+    // updateBlock couldn't read the block
+    private static final int UNREADABLE = Integer.MIN_VALUE;
+
+    // Rough per-object overhead used for the memory estimate
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int SECTION_OVERHEAD = 16;
+
+    @FunctionalInterface
+    public interface PositionConsumer {
+        void accept(int layer, int x, int y, int z);
+    }
+
+    private final BlockLayers layers;
+    private final short[][] noBlocks;
+    private volatile BarrierIndex index;
+    private final LinkedHashMap<ChunkKey, ChunkEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes = 0;
+
+    public BarrierChunkCache(BlockLayers layers) {
+        this.layers = layers;
+        this.noBlocks = new short[layers.count()][0];
+    }
+
+    public BlockLayers getLayers() {
+        return layers;
+    }
+
+    public void setIndex(BarrierIndex index) {
+        this.index = index;
+    }
+
+    // Sections of the chunk overlapping [minY, maxY], by section index (null outside the range), scanning
+    // ones that are missing or stale while budget allows. Past it, a stale section is returned as it is and
+    // a missing one as null, and both are deferred to a later call. Needs the world thread; the returned
+    // arrays are never modified, so they can be read from any thread afterwards
+    public synchronized short[][][] sections(World world, WorldChunk chunk, int chunkX, int chunkZ,
+                                             int minY, int maxY, ScanBudget budget) {
+        ChunkKey key = new ChunkKey(world.getName(), chunkX, chunkZ);
+        ChunkEntry entry = entries.get(key);
+        if (entry != null && entry.chunk.get() != chunk) {
+            // Chunk was unloaded and loaded again; nothing cached for it can be trusted
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            entry = new ChunkEntry(chunk);
+            entries.put(key, entry);
+            usedBytes += ENTRY_OVERHEAD;
+        }
+
+        BarrierStats stats = StatsRegistry.world(world.getName());
+        BarrierIndex index = this.index;
+        int chunkMinX = chunkX * CHUNK_SIZE;
+        int chunkMinZ = chunkZ * CHUNK_SIZE;
+        int firstSection = Math.max(0, minY / SECTION_HEIGHT);
+        int lastSection = Math.min(SECTION_COUNT - 1, maxY / SECTION_HEIGHT);
+        long now = System.currentTimeMillis();
+        short[][][] result = new short[SECTION_COUNT][][];
+
+        for (int section = firstSection; section <= lastSection; section++) {
+            short[][] blocks = entry.sections[section];
+            if (blocks == null || now - entry.scannedAt[section] > MAX_AGE_MS) {
+                // First sight of this section: trust the index; once it ages out, check the live chunk
+                short[][] indexed = blocks == null && index != null
+                        ? index.section(world.getName(), chunkX, chunkZ, section)
+                        : null;
+                if (indexed == null && !budget.take()) {
+                    budget.defer();
+                    stats.recordScanDeferred();
+                    result[section] = blocks;
+                    continue;
+                }
+                stats.recordCacheMiss();
+                if (blocks != null) {
+                    usedBytes -= sectionBytes(blocks);
+                }
+                if (indexed != null) {
+                    blocks = indexed;
+                    stats.recordIndexHit();
+                } else {
+                    short[][] scanned = scanSection(chunk, chunkMinX, chunkMinZ, section, stats);
+                    if (blocks != null && Arrays.deepEquals(scanned, blocks)) {
+                        // Nothing changed; keeping the old array tells views and the index so
+                        scanned = blocks;
+                    } else if (index != null) {
+                        index.putSection(world.getName(), chunkX, chunkZ, section, scanned);
+                    }
+                    blocks = scanned;
+                }
+                entry.sections[section] = blocks;
+                entry.scannedAt[section] = now;
+                usedBytes += sectionBytes(blocks);
+            } else {
+                stats.recordCacheHit();
+            }
+            result[section] = blocks;
+        }
+
+        evictOverBudget();
+        return result;
+    }
+
+    // Emit every block in [minY, maxY] of sections returned by sections(), with its layer
+    public static void forEachBlock(short[][][] sections, int chunkX, int chunkZ, int minY, int maxY,
+                                    PositionConsumer consumer) {
+        int chunkMinX = chunkX * CHUNK_SIZE;
+        int chunkMinZ = chunkZ * CHUNK_SIZE;
+        for (int section = 0; section < sections.length; section++) {
+            short[][] blocks = sections[section];
+            if (blocks == null) continue;
+            int sectionMinY = section * SECTION_HEIGHT;
+            for (int layer = 0; layer < blocks.length; layer++) {
+                for (short local : blocks[layer]) {
+                    int y = sectionMinY + ((local >> 10) & 31);
+                    if (y < minY || y > maxY) continue;
+                    consumer.accept(layer, chunkMinX + (local & 31), y, chunkMinZ + ((local >> 5) & 31));
+                }
+            }
+        }
+    }
+
+    // Index up to budget sections of the chunk that the index doesn't know yet; returns how many were probed
+    public synchronized int indexChunk(World world, WorldChunk chunk, int chunkX, int chunkZ, int budget) {
+        BarrierIndex index = this.index;
+        if (index == null || budget <= 0) return 0;
+
+        BarrierStats stats = StatsRegistry.world(world.getName());
+        long known = index.knownSections(world.getName(), chunkX, chunkZ);
+        ChunkEntry entry = entries.get(new ChunkKey(world.getName(), chunkX, chunkZ));
+        if (entry != null && entry.chunk.get() != chunk) {
+            entry = null;
+        }
+
+        int probed = 0;
+        for (int section = 0; section < SECTION_COUNT && probed < budget; section++) {
+            if ((known & (1L << section)) != 0) continue;
+            short[][] blocks = entry != null ? entry.sections[section] : null;
+            if (blocks == null) {
+                if (!mayContain(chunk, section)) {
+                    stats.recordSectionSkipped();
+                    blocks = noBlocks;
+                } else {
+                    blocks = probeSection(chunk, chunkX * CHUNK_SIZE, chunkZ * CHUNK_SIZE, section, stats);
+                    probed++;
+                }
+            }
+            index.putSection(world.getName(), chunkX, chunkZ, section, blocks);
+        }
+        return probed;
+    }
+
+    // Re-classify one block after a place/break was applied and patch it into a copy of its section, cached
+    // or indexed; returns true if a layer gained or lost it. Blocks in sections nobody has read are only
+    // reported when they belong to a layer. Needs the world thread
+    public synchronized boolean updateBlock(World world, int x, int y, int z) {
+        if (y < 0 || y >= WORLD_HEIGHT) return false;
+        int section = y / SECTION_HEIGHT;
+        int chunkX = Math.floorDiv(x, CHUNK_SIZE);
+        int chunkZ = Math.floorDiv(z, CHUNK_SIZE);
+        String worldName = world.getName();
+
+        ChunkEntry entry = entries.get(new ChunkKey(worldName, chunkX, chunkZ));
+        WorldChunk chunk = entry != null ? entry.chunk.get() : null;
+        if (chunk == null) {
+            chunk = world.getChunkIfInMemory(ChunkUtil.indexChunk(chunkX, chunkZ));
+        }
+        // Cached sections only describe the chunk instance they were read from
+        short[][] cached = entry != null && entry.chunk.get() == chunk ? entry.sections[section] : null;
+        BarrierIndex index = this.index;
+        short[][] blocks = cached != null ? cached
+                : index != null ? index.section(worldName, chunkX, chunkZ, section) : null;
+
+        int layer;
+        try {
+            layer = chunk != null ? layers.classify(chunk.getBlock(x, y, z)) : UNREADABLE;
+        } catch (Exception e) {
+            // Block access failed
+            layer = UNREADABLE;
+        }
+        if (layer == UNREADABLE) {
+            if (blocks == null) return false;
+            // Drop what is known so the next scan reads the section again
+            invalidateSection(worldName, chunkX, chunkZ, section);
+            return true;
+        }
+        if (blocks == null) {
+            // Nothing to patch; the section is scanned in full when a view needs it
+            return layer != BlockLayers.NONE;
+        }
+
+        short local = (short) (((y - section * SECTION_HEIGHT) << 10) | ((z - chunkZ * CHUNK_SIZE) << 5)
+                | (x - chunkX * CHUNK_SIZE));
+        short[][] patched = null;
+        for (int l = 0; l < blocks.length; l++) {
+            int at = Arrays.binarySearch(blocks[l], local);
+            if ((at >= 0) == (l == layer)) continue;
+            if (patched == null) patched = blocks.clone();
+            patched[l] = at >= 0 ? without(blocks[l], at) : with(blocks[l], -at - 1, local);
+        }
+        if (patched == null) return false;
+
+        // Sections handed out earlier are never modified, so the old array stays valid for readers
+        if (cached != null) {
+            usedBytes += sectionBytes(patched) - sectionBytes(cached);
+            entry.sections[section] = patched;
+        }
+        if (index != null) {
+            index.putSection(worldName, chunkX, chunkZ, section, patched);
+        }
+        return true;
+    }
+
+    // Forget the section holding this block, in the cache and the index
+    public synchronized void invalidateBlock(String worldName, int x, int y, int z) {
+        if (y < 0) return;
+        int section = y / SECTION_HEIGHT;
+        if (section >= SECTION_COUNT) return;
+        invalidateSection(worldName, Math.floorDiv(x, CHUNK_SIZE), Math.floorDiv(z, CHUNK_SIZE), section);
+    }
+
+    private void invalidateSection(String worldName, int chunkX, int chunkZ, int section) {
+        BarrierIndex index = this.index;
+        if (index != null) {
+            index.forgetSection(worldName, chunkX, chunkZ, section);
+        }
+
+        ChunkEntry entry = entries.get(new ChunkKey(worldName, chunkX, chunkZ));
+        if (entry == null) return;
+
+        short[][] blocks = entry.sections[section];
+        if (blocks != null) {
+            usedBytes -= sectionBytes(blocks);
+            entry.sections[section] = null;
+        }
+    }
+
+    public synchronized void invalidateWorld(String worldName) {
+        Iterator<Map.Entry<ChunkKey, ChunkEntry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<ChunkKey, ChunkEntry> e = it.next();
+            if (e.getKey().world.equals(worldName)) {
+                usedBytes -= entryBytes(e.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    // Palette check, then a block-by-block probe if the section may hold a layer's block
+    private short[][] scanSection(WorldChunk chunk, int chunkMinX, int chunkMinZ, int section, BarrierStats stats) {
+        if (!mayContain(chunk, section)) {
+            stats.recordSectionSkipped();
+            return noBlocks;
+        }
+        return probeSection(chunk, chunkMinX, chunkMinZ, section, stats);
+    }
+
+    private boolean mayContain(WorldChunk chunk, int section) {
+        return SectionPalette.mayContain(chunk, section, layers.classifiedIds());
+    }
+
+    private short[][] probeSection(WorldChunk chunk, int chunkMinX, int chunkMinZ, int section, BarrierStats stats) {
+        long start = System.nanoTime();
+        short[][] blocks = SectionScanner.scan((x, y, z) -> {
+            try {
+                return layers.classify(chunk.getBlock(x, y, z));
+            } catch (Exception e) {
+                // Block access failed
+                return VoxelClassifier.NONE;
+            }
+        }, layers.count(), chunkMinX, chunkMinZ, section * SECTION_HEIGHT);
+
+        int found = 0;
+        for (short[] layer : blocks) {
+            // Sorted, so single blocks can be patched and sections compared with a merge walk
+            Arrays.sort(layer);
+            found += layer.length;
+        }
+        stats.recordScan(System.nanoTime() - start, CHUNK_SIZE * CHUNK_SIZE * SECTION_HEIGHT, found);
+        return blocks;
+    }
+
+    private void remove(ChunkKey key) {
+        ChunkEntry removed = entries.remove(key);
+        if (removed != null) {
+            usedBytes -= entryBytes(removed);
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<ChunkEntry> it = entries.values().iterator();
+        while (usedBytes > MAX_BYTES && it.hasNext()) {
+            usedBytes -= entryBytes(it.next());
+            it.remove();
+        }
+    }
+
+    private static short[] with(short[] positions, int at, short local) {
+        short[] result = new short[positions.length + 1];
+        System.arraycopy(positions, 0, result, 0, at);
+        result[at] = local;
+        System.arraycopy(positions, at, result, at + 1, positions.length - at);
+        return result;
+    }
+
+    private static short[] without(short[] positions, int at) {
+        short[] result = new short[positions.length - 1];
+        System.arraycopy(positions, 0, result, 0, at);
+        System.arraycopy(positions, at + 1, result, at, positions.length - at - 1);
+        return result;
+    }
+
+    private static long sectionBytes(short[][] blocks) {
+        long bytes = SECTION_OVERHEAD;
+        for (short[] layer : blocks) {
+            bytes += SECTION_OVERHEAD + (long) layer.length * Short.BYTES;
+        }
+        return bytes;
+    }
+
+    private static long entryBytes(ChunkEntry entry) {
+        long bytes = ENTRY_OVERHEAD;
+        for (short[][] blocks : entry.sections) {
+            if (blocks != null) {
+                bytes += sectionBytes(blocks);
+            }
+        }
+        return bytes;
+    }
+
+    private static class ChunkEntry {
+        final WeakReference<WorldChunk> chunk;
+        // Per section and layer, sorted local positions packed as (y << 10 | z << 5 | x); null means not
+        // scanned yet. Arrays are replaced, never modified, once handed out
+        final short[][][] sections = new short[SECTION_COUNT][][];
+        final long[] scannedAt = new long[SECTION_COUNT];
+
+        ChunkEntry(WorldChunk chunk) {
+            this.chunk = new WeakReference<>(chunk);
+        }
+    }
+
+    private static class ChunkKey {
+        final String world;
+        final int chunkX, chunkZ;
+
+        ChunkKey(String world, int chunkX, int chunkZ) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChunkKey)) return false;
+            ChunkKey other = (ChunkKey) o;
+            return chunkX == other.chunkX && chunkZ == other.chunkZ && world.equals(other.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(world, chunkX, chunkZ);
+        }
+    }
+}
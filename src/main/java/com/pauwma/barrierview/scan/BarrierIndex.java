@@ -0,0 +1,573 @@
+package com.pauwma.barrierview.scan;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Highlighted block positions per world kept on disk, so a restarted server
+ * knows where barriers are without scanning and whole worlds can be queried.
+ *
+ * Worlds are split into regions of 32x32 chunks, one file each
+ * (index/world/r.X.Z.bvi). A file starts with the layer names it was written
+ * with and is ignored if they no longer match the configured layers. A chunk
+ * record lists which of its sections are known and, for each section and
+ * layer, the block count followed by the sorted local positions
+ * (y << 10 | z << 5 | x) as varint deltas. Files are memory-mapped
+ * on first use and decoded one chunk at a time; a change only decodes the
+ * chunk it touches. Changed regions are rewritten to a temporary file on the
+ * next flush, which copies the records of undecoded chunks as they are, and
+ * moved over the old one; from then on the region reads the bytes just
+ * written. Windows won't replace a file while a mapping of it is alive, and a
+ * mapping only goes away once its buffer is garbage collected, so there files
+ * are read into the heap instead. At most {@link #MAX_REGIONS} regions stay
+ * loaded; the least recently used unchanged ones are dropped and read again
+ * when needed.
+ *
+ * Unknown sections simply aren't in the index; callers scan those live.
+ */
+public class BarrierIndex {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // "BVI2"
+    private static final int MAGIC = 0x42564932;
+
+    // Region width in chunks
+    public static final int REGION_CHUNKS = 32;
+
+    private static final String EXTENSION = ".bvi";
+
+    // Loaded regions kept before the least recently used unchanged ones are dropped
+    static final int MAX_REGIONS = 256;
+
+    // Whether region files are memory-mapped; off on Windows, where a mapped file can't be replaced
+    private static final boolean MAP_FILES =
+            !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(int chunkX, int chunkZ, short[][][] sections);
+    }
+
+    // Told about every chunk with newly indexed data; called with the index locked, so it must not call back
+    @FunctionalInterface
+    public interface ChangeListener {
+        void chunkChanged(String world, int chunkX, int chunkZ);
+    }
+
+    private final Path directory;
+    private final String[] layerNames;
+    private final LinkedHashMap<RegionKey, Region> regions = new LinkedHashMap<>(64, 0.75f, true);
+    // Held for a whole flush, so two flushes never write the same file at once
+    private final Object flushLock = new Object();
+    private volatile ChangeListener listener;
+
+    public BarrierIndex(Path directory, BlockLayers layers) {
+        this.directory = directory;
+        this.layerNames = new String[layers.count()];
+        for (int layer = 0; layer < layerNames.length; layer++) {
+            layerNames[layer] = layers.name(layer);
+        }
+    }
+
+    // Indexed blocks of one section per layer, or null if the section isn't indexed
+    public synchronized short[][] section(String world, int chunkX, int chunkZ, int section) {
+        ChunkData data = chunk(world, chunkX, chunkZ, false);
+        if (data == null || (data.known & (1L << section)) == 0) return null;
+        return data.sections[section];
+    }
+
+    // Every section of the chunk (null where not indexed), or null if nothing of it is indexed
+    public synchronized short[][][] sections(String world, int chunkX, int chunkZ) {
+        ChunkData data = chunk(world, chunkX, chunkZ, false);
+        if (data == null || data.known == 0) return null;
+        return data.sections.clone();
+    }
+
+    public void setListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    // Bit s is set when section s of the chunk is indexed
+    public synchronized long knownSections(String world, int chunkX, int chunkZ) {
+        ChunkData data = chunk(world, chunkX, chunkZ, false);
+        return data == null ? 0L : data.known;
+    }
+
+    public synchronized void putSection(String world, int chunkX, int chunkZ, int section, short[][] blocks) {
+        short[][] sorted = new short[blocks.length][];
+        for (int layer = 0; layer < blocks.length; layer++) {
+            sorted[layer] = blocks[layer].clone();
+            Arrays.sort(sorted[layer]);
+        }
+
+        ChunkData existing = chunk(world, chunkX, chunkZ, false);
+        if (existing != null && (existing.known & (1L << section)) != 0
+                && Arrays.deepEquals(existing.sections[section], sorted)) {
+            return;
+        }
+
+        ChunkData data = chunk(world, chunkX, chunkZ, true);
+        data.sections[section] = sorted;
+        data.known |= 1L << section;
+        region(world, chunkX, chunkZ).dirty = true;
+        notifyChanged(world, chunkX, chunkZ);
+    }
+
+    // Drop a section after a block in it changed; it is indexed again by the next scan
+    public synchronized void forgetSection(String world, int chunkX, int chunkZ, int section) {
+        ChunkData data = chunk(world, chunkX, chunkZ, false);
+        if (data == null || (data.known & (1L << section)) == 0) return;
+
+        data.known &= ~(1L << section);
+        data.sections[section] = null;
+        region(world, chunkX, chunkZ).dirty = true;
+        // Listeners keep the old data until the section is indexed again
+    }
+
+    // Visit every indexed chunk of the world, including regions not loaded yet. The index is locked one region
+    // at a time, so a walk over a large world doesn't hold up the world threads' lookups until it is done
+    public void forEachChunk(String world, ChunkConsumer consumer) {
+        for (RegionKey key : regionKeys(world)) {
+            synchronized (this) {
+                Region region = region(world, key.regionX * REGION_CHUNKS, key.regionZ * REGION_CHUNKS);
+                for (int local = 0; local < REGION_CHUNKS * REGION_CHUNKS; local++) {
+                    ChunkData data = region.chunk(local, false);
+                    if (data == null || data.known == 0) continue;
+                    consumer.accept(region.regionX * REGION_CHUNKS + (local & (REGION_CHUNKS - 1)),
+                            region.regionZ * REGION_CHUNKS + (local >> 5), data.sections);
+                }
+            }
+        }
+    }
+
+    // Write every changed region to disk
+    public void flush() {
+        synchronized (flushLock) {
+            // Copy what changed under the lock; encoding and disk I/O run outside it so world threads
+            // aren't held up
+            List<Region> saving = new ArrayList<>();
+            List<RegionSnapshot> snapshots = new ArrayList<>();
+            synchronized (this) {
+                for (Region region : regions.values()) {
+                    if (!region.dirty) continue;
+                    region.dirty = false;
+                    region.saving = true;
+                    saving.add(region);
+                    snapshots.add(region.snapshot());
+                }
+            }
+
+            for (int i = 0; i < saving.size(); i++) {
+                Region region = saving.get(i);
+                Path file = region.file;
+                try {
+                    int[] offsets = new int[REGION_CHUNKS * REGION_CHUNKS];
+                    byte[] bytes = snapshots.get(i).encode(offsets);
+                    snapshots.set(i, null);
+                    Files.createDirectories(file.getParent());
+                    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                    Files.write(temp, bytes);
+                    // Record offsets changed with the rewrite, so read the new bytes from here on
+                    synchronized (this) {
+                        region.replaceStored(bytes, offsets);
+                    }
+                    replace(temp, file);
+                } catch (IOException e) {
+                    LOGGER.atWarning().log("[BarrierView] Could not write barrier index " + file + ": " + e.getMessage());
+                    synchronized (this) {
+                        region.dirty = true;
+                    }
+                } finally {
+                    synchronized (this) {
+                        region.saving = false;
+                    }
+                }
+            }
+            synchronized (this) {
+                evictOverLimit();
+            }
+        }
+    }
+
+    // Forget everything held in memory; files stay on disk
+    public synchronized void close() {
+        regions.clear();
+    }
+
+    private void notifyChanged(String world, int chunkX, int chunkZ) {
+        ChangeListener listener = this.listener;
+        if (listener != null) {
+            listener.chunkChanged(world, chunkX, chunkZ);
+        }
+    }
+
+    private static void replace(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private ChunkData chunk(String world, int chunkX, int chunkZ, boolean create) {
+        Region region = region(world, chunkX, chunkZ);
+        int local = (Math.floorMod(chunkZ, REGION_CHUNKS) << 5) | Math.floorMod(chunkX, REGION_CHUNKS);
+        return region.chunk(local, create);
+    }
+
+    private Region region(String world, int chunkX, int chunkZ) {
+        RegionKey key = new RegionKey(world, Math.floorDiv(chunkX, REGION_CHUNKS), Math.floorDiv(chunkZ, REGION_CHUNKS));
+        Region region = regions.get(key);
+        if (region == null) {
+            region = new Region(worldDirectory(world).resolve("r." + key.regionX + "." + key.regionZ + EXTENSION),
+                    key.regionX, key.regionZ, layerNames);
+            regions.put(key, region);
+            evictOverLimit();
+        }
+        return region;
+    }
+
+    // Regions of the world on disk, and loaded ones with changes that haven't been written yet
+    private List<RegionKey> regionKeys(String world) {
+        Set<RegionKey> found = new LinkedHashSet<>();
+        Path worldDir = worldDirectory(world);
+        if (Files.isDirectory(worldDir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(worldDir, "r.*" + EXTENSION)) {
+                for (Path file : files) {
+                    String[] parts = file.getFileName().toString().split("\\.");
+                    if (parts.length != 4) continue;
+                    try {
+                        found.add(new RegionKey(world, Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.atWarning().log("[BarrierView] Could not list barrier index " + worldDir + ": " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            for (RegionKey key : regions.keySet()) {
+                if (key.world.equals(world)) {
+                    found.add(key);
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    // Drop the least recently used regions past MAX_REGIONS; changed ones stay until they are written
+    private void evictOverLimit() {
+        Iterator<Region> it = regions.values().iterator();
+        int excess = regions.size() - MAX_REGIONS;
+        while (excess > 0 && it.hasNext()) {
+            Region region = it.next();
+            if (region.dirty || region.saving) continue;
+            it.remove();
+            excess--;
+        }
+    }
+
+    private Path worldDirectory(String world) {
+        return directory.resolve(world.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    private static class RegionKey {
+        final String world;
+        final int regionX, regionZ;
+
+        RegionKey(String world, int regionX, int regionZ) {
+            this.world = world;
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RegionKey)) return false;
+            RegionKey other = (RegionKey) o;
+            return regionX == other.regionX && regionZ == other.regionZ && world.equals(other.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(world, regionX, regionZ);
+        }
+    }
+
+    private static class ChunkData {
+        long known;
+        final short[][][] sections = new short[BarrierChunkCache.SECTION_COUNT][][];
+    }
+
+    private static class Region {
+        final Path file;
+        final int regionX, regionZ;
+        final String[] layerNames;
+        final ChunkData[] chunks = new ChunkData[REGION_CHUNKS * REGION_CHUNKS];
+        boolean dirty;
+        // Being written by a flush; not evicted until it is on disk
+        boolean saving;
+
+        // The file's contents (mapped or read in, or the bytes last written) and each chunk's record offset in them
+        // (-1 if absent); null if there is no usable file
+        private ByteBuffer stored;
+        private int[] offsets;
+        private boolean opened;
+
+        Region(Path file, int regionX, int regionZ, String[] layerNames) {
+            this.file = file;
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+            this.layerNames = layerNames;
+        }
+
+        ChunkData chunk(int local, boolean create) {
+            open();
+            ChunkData data = chunks[local];
+            if (data == null && stored != null && offsets[local] >= 0) {
+                data = decodeChunk(stored.duplicate().position(offsets[local]), layerNames.length);
+                chunks[local] = data;
+            }
+            if (data == null && create) {
+                data = new ChunkData();
+                chunks[local] = data;
+            }
+            return data;
+        }
+
+        // What a flush writes: decoded chunks are copied, the rest still point into the stored bytes
+        RegionSnapshot snapshot() {
+            open();
+            ChunkData[] copies = new ChunkData[chunks.length];
+            for (int local = 0; local < chunks.length; local++) {
+                ChunkData data = chunks[local];
+                if (data == null) continue;
+                ChunkData copy = new ChunkData();
+                copy.known = data.known;
+                // Section arrays are replaced, never modified, so sharing them is safe
+                System.arraycopy(data.sections, 0, copy.sections, 0, data.sections.length);
+                copies[local] = copy;
+            }
+            return new RegionSnapshot(layerNames, copies,
+                    stored != null ? stored.duplicate() : null, offsets != null ? offsets.clone() : null);
+        }
+
+        // Read undecoded chunks from bytes just written instead of the old file
+        void replaceStored(byte[] bytes, int[] newOffsets) {
+            stored = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            offsets = newOffsets;
+            opened = true;
+        }
+
+        private void open() {
+            if (opened) return;
+            opened = true;
+            if (!Files.isRegularFile(file)) return;
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = read(channel);
+                if (buffer.getInt() != MAGIC) {
+                    LOGGER.atWarning().log("[BarrierView] Ignoring barrier index " + file + ": unknown format");
+                    return;
+                }
+                String[] written = new String[buffer.get()];
+                for (int layer = 0; layer < written.length; layer++) {
+                    written[layer] = readUtf(buffer);
+                }
+                if (!Arrays.equals(written, layerNames)) {
+                    // Layers changed since the file was written; it is rebuilt as chunks are scanned
+                    LOGGER.atInfo().log("[BarrierView] Ignoring barrier index " + file + ": written for layers "
+                            + String.join(",", written));
+                    return;
+                }
+                int layerCount = written.length;
+
+                // Walk the records once to find each chunk; sections are decoded on demand
+                int[] found = new int[chunks.length];
+                Arrays.fill(found, -1);
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    int offset = buffer.position();
+                    int local = buffer.getShort() & (chunks.length - 1);
+                    found[local] = offset;
+                    skipChunk(buffer, layerCount);
+                }
+                stored = buffer;
+                offsets = found;
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+                LOGGER.atWarning().log("[BarrierView] Ignoring damaged barrier index " + file + ": " + e.getMessage());
+            }
+        }
+
+        private static ByteBuffer read(FileChannel channel) throws IOException {
+            if (MAP_FILES) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            return buffer.flip().asReadOnlyBuffer();
+        }
+
+        private static ChunkData decodeChunk(ByteBuffer buffer, int layerCount) {
+            ChunkData data = new ChunkData();
+            buffer.getShort();
+            long known = buffer.getLong();
+            for (int section = 0; section < 64; section++) {
+                if ((known & (1L << section)) == 0) continue;
+                short[][] blocks = new short[layerCount][];
+                for (int layer = 0; layer < layerCount; layer++) {
+                    blocks[layer] = new short[readVarInt(buffer)];
+                    int previous = 0;
+                    for (int i = 0; i < blocks[layer].length; i++) {
+                        previous += readVarInt(buffer);
+                        blocks[layer][i] = (short) previous;
+                    }
+                }
+                // Sections above this world's height are dropped
+                if (section < data.sections.length) {
+                    data.sections[section] = blocks;
+                    data.known |= 1L << section;
+                }
+            }
+            return data;
+        }
+
+        private static void skipChunk(ByteBuffer buffer, int layerCount) {
+            long known = buffer.getLong();
+            for (int section = 0; section < 64; section++) {
+                if ((known & (1L << section)) == 0) continue;
+                for (int layer = 0; layer < layerCount; layer++) {
+                    int count = readVarInt(buffer);
+                    for (int i = 0; i < count; i++) {
+                        readVarInt(buffer);
+                    }
+                }
+            }
+        }
+
+        // Counterpart of DataOutputStream.writeUTF
+        private static String readUtf(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // A region's contents as of a flush, encoded outside the index lock
+    private static class RegionSnapshot {
+        final String[] layerNames;
+        final ChunkData[] chunks;
+        final ByteBuffer stored;
+        final int[] storedOffsets;
+
+        RegionSnapshot(String[] layerNames, ChunkData[] chunks, ByteBuffer stored, int[] storedOffsets) {
+            this.layerNames = layerNames;
+            this.chunks = chunks;
+            this.stored = stored;
+            this.storedOffsets = storedOffsets;
+        }
+
+        // The file contents; offsets receives each chunk's record offset in them (-1 if absent)
+        byte[] encode(int[] offsets) {
+            Arrays.fill(offsets, -1);
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                int count = 0;
+                for (int local = 0; local < chunks.length; local++) {
+                    ChunkData data = chunks[local];
+                    if (data != null ? data.known != 0 : storedOffsets != null && storedOffsets[local] >= 0) count++;
+                }
+                out.writeInt(MAGIC);
+                out.writeByte(layerNames.length);
+                for (String name : layerNames) {
+                    out.writeUTF(name);
+                }
+                out.writeInt(count);
+                for (int local = 0; local < chunks.length; local++) {
+                    ChunkData data = chunks[local];
+                    if (data == null) {
+                        // Never decoded, so unchanged: copy its record as it is
+                        if (storedOffsets == null || storedOffsets[local] < 0) continue;
+                        offsets[local] = out.size();
+                        ByteBuffer record = stored.duplicate().position(storedOffsets[local]);
+                        record.getShort();
+                        Region.skipChunk(record, layerNames.length);
+                        byte[] raw = new byte[record.position() - storedOffsets[local]];
+                        stored.duplicate().position(storedOffsets[local]).get(raw);
+                        out.write(raw);
+                        continue;
+                    }
+                    if (data.known == 0) continue;
+                    offsets[local] = out.size();
+                    out.writeShort(local);
+                    out.writeLong(data.known);
+                    for (int section = 0; section < data.sections.length; section++) {
+                        if ((data.known & (1L << section)) == 0) continue;
+                        for (short[] blocks : data.sections[section]) {
+                            writeVarInt(out, blocks.length);
+                            int previous = 0;
+                            for (short pos : blocks) {
+                                writeVarInt(out, pos - previous);
+                                previous = pos;
+                            }
+                        }
+                    }
+                }
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                // ByteArrayOutputStream doesn't throw
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
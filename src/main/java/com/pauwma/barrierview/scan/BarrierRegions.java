@@ -0,0 +1,157 @@
+package com.pauwma.barrierview.scan;
+
+import com.pauwma.barrierview.geometry.BoundingBox;
+import com.pauwma.barrierview.geometry.BoxTree;
+import com.pauwma.barrierview.geometry.CuboidPacker;
+import com.pauwma.barrierview.geometry.VoxelBitmap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Barrier regions of whole worlds in a {@link BoxTree}, for range,
+ * point-containment and nearest queries that don't touch chunks.
+ *
+ * A region is one of the boxes {@link CuboidPacker} covers a chunk's indexed
+ * barriers with, so regions never hold air and a block is inside a region
+ * exactly when it is an indexed barrier. Regions stop at chunk borders: a wall
+ * running through several chunks is at least one region per chunk. A world's
+ * tree is built from the
+ * index on first use; after that the index reports every chunk it re-indexes
+ * and only those chunks' regions are replaced, before the next query.
+ */
+public class BarrierRegions {
+
+    private final BarrierIndex index;
+    private final Map<String, WorldRegions> worlds = new HashMap<>();
+
+    // Chunks re-indexed since the last query, per world; filled while the index is locked
+    private final Map<String, Set<Long>> changed = new ConcurrentHashMap<>();
+
+    public BarrierRegions(BarrierIndex index) {
+        this.index = index;
+        index.setListener((world, chunkX, chunkZ) ->
+                changed.computeIfAbsent(world, w -> ConcurrentHashMap.newKeySet()).add(chunkKey(chunkX, chunkZ)));
+    }
+
+    // Regions overlapping the box; max coordinates are exclusive
+    public synchronized List<BoundingBox> within(String world, int minX, int minY, int minZ,
+                                                 int maxX, int maxY, int maxZ) {
+        BoxTree tree = regions(world).tree;
+        List<BoundingBox> boxes = new ArrayList<>();
+        tree.query(minX, minY, minZ, maxX, maxY, maxZ, leaf -> boxes.add(tree.box(leaf)));
+        return boxes;
+    }
+
+    // A region containing the block, or null
+    public synchronized BoundingBox containing(String world, int x, int y, int z) {
+        BoxTree tree = regions(world).tree;
+        BoundingBox[] found = {null};
+        tree.queryPoint(x, y, z, leaf -> {
+            if (found[0] == null) found[0] = tree.box(leaf);
+        });
+        return found[0];
+    }
+
+    // The region closest to the block, or null if the world has none
+    public synchronized BoundingBox nearest(String world, int x, int y, int z) {
+        BoxTree tree = regions(world).tree;
+        int leaf = tree.nearest(x, y, z);
+        return leaf == BoxTree.NULL ? null : tree.box(leaf);
+    }
+
+    public synchronized int count(String world) {
+        return regions(world).tree.size();
+    }
+
+    // Build or catch up a world's tree ahead of queries, e.g. off the world thread
+    public synchronized void update(String world) {
+        regions(world);
+    }
+
+    private WorldRegions regions(String world) {
+        WorldRegions regions = worlds.get(world);
+        Set<Long> pending = changed.computeIfAbsent(world, w -> ConcurrentHashMap.newKeySet());
+        if (regions == null) {
+            regions = new WorldRegions();
+            worlds.put(world, regions);
+            // Everything is read below; changes from here on are caught by the next update
+            pending.clear();
+            WorldRegions target = regions;
+            index.forEachChunk(world, (chunkX, chunkZ, sections) -> target.replaceChunk(chunkX, chunkZ, sections));
+            return regions;
+        }
+
+        Iterator<Long> it = pending.iterator();
+        while (it.hasNext()) {
+            long key = it.next();
+            it.remove();
+            int chunkX = (int) (key >> 32);
+            int chunkZ = (int) key;
+            regions.replaceChunk(chunkX, chunkZ, index.sections(world, chunkX, chunkZ));
+        }
+        return regions;
+    }
+
+    public synchronized void clear() {
+        worlds.clear();
+        changed.clear();
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static class WorldRegions {
+        final BoxTree tree = new BoxTree();
+        // Leaf ids of each chunk's regions
+        private final Map<Long, int[]> leaves = new HashMap<>();
+        private final VoxelBitmap bitmap = new VoxelBitmap();
+
+        void replaceChunk(int chunkX, int chunkZ, short[][][] sections) {
+            long key = chunkKey(chunkX, chunkZ);
+            int[] old = leaves.remove(key);
+            if (old != null) {
+                for (int leaf : old) {
+                    tree.remove(leaf);
+                }
+            }
+            if (sections == null) return;
+
+            // Barriers are layer 0; boxes may span sections but not chunks
+            int first = -1, last = -1;
+            for (int section = 0; section < sections.length; section++) {
+                if (sections[section] == null || sections[section][0].length == 0) continue;
+                if (first < 0) first = section;
+                last = section;
+            }
+            if (first < 0) return;
+
+            int chunkMinX = chunkX * BarrierChunkCache.CHUNK_SIZE;
+            int chunkMinZ = chunkZ * BarrierChunkCache.CHUNK_SIZE;
+            bitmap.reset(chunkMinX, first * BarrierChunkCache.SECTION_HEIGHT, chunkMinZ, BarrierChunkCache.CHUNK_SIZE,
+                    (last - first + 1) * BarrierChunkCache.SECTION_HEIGHT, BarrierChunkCache.CHUNK_SIZE);
+            for (int section = first; section <= last; section++) {
+                if (sections[section] == null) continue;
+                int sectionMinY = section * BarrierChunkCache.SECTION_HEIGHT;
+                for (short local : sections[section][0]) {
+                    bitmap.set(chunkMinX + (local & 31), sectionMinY + ((local >> 10) & 31),
+                            chunkMinZ + ((local >> 5) & 31));
+                }
+            }
+
+            List<BoundingBox> boxes = CuboidPacker.pack(bitmap);
+            int[] ids = new int[boxes.size()];
+            for (int i = 0; i < ids.length; i++) {
+                BoundingBox box = boxes.get(i);
+                ids[i] = tree.insert(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, key);
+            }
+            leaves.put(key, ids);
+        }
+    }
+}
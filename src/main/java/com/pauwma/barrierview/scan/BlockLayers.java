@@ -0,0 +1,102 @@
+package com.pauwma.barrierview.scan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorts block types into highlight layers. Layer 0 is always the barrier
+ * layer; further layers come from the config.
+ *
+ * The lookup is a table indexed by numeric block type id, so classifying a
+ * block is one array read. Ids are assigned by the asset store, so the table
+ * is rebuilt whenever block type assets are (re)loaded.
+ */
+public class BlockLayers {
+
+    // Layer of blocks that belong to no layer
+    public static final int NONE = -1;
+
+    // While no block type resolves, lookups retry the rebuild at most this often
+    private static final long RETRY_MS = 1000L;
+
+    private final String[] names;
+    private final String[][] blockIds;
+
+    // Block id -> layer + 1 (0 = not highlighted), and every id that maps to a layer
+    private volatile byte[] table = new byte[0];
+    private volatile int[] classifiedIds = new int[0];
+    private volatile boolean resolved = false;
+    private volatile long lastAttempt = 0;
+
+    public BlockLayers(List<String> names, List<List<String>> blockIds) {
+        if (names.isEmpty() || names.size() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Need between 1 and 127 layers, got " + names.size());
+        }
+        this.names = names.toArray(new String[0]);
+        this.blockIds = new String[blockIds.size()][];
+        for (int layer = 0; layer < blockIds.size(); layer++) {
+            this.blockIds[layer] = blockIds.get(layer).toArray(new String[0]);
+        }
+    }
+
+    public int count() {
+        return names.length;
+    }
+
+    public String name(int layer) {
+        return names[layer];
+    }
+
+    // Layer of the numeric block type id, or NONE
+    public int classify(int blockId) {
+        byte[] t = table();
+        return blockId >= 0 && blockId < t.length ? t[blockId] - 1 : NONE;
+    }
+
+    // Numeric ids of every block type in any layer, for palette checks
+    public int[] classifiedIds() {
+        table();
+        return classifiedIds;
+    }
+
+    // Call when block type assets were (re)loaded; ids may have moved
+    public synchronized void rebuild() {
+        byte[] next = new byte[0];
+        List<Integer> ids = new ArrayList<>();
+        for (int layer = 0; layer < blockIds.length; layer++) {
+            for (String id : blockIds[layer]) {
+                int index = SectionPalette.blockIndex(id);
+                if (index == SectionPalette.UNKNOWN) continue;
+                if (index >= next.length) {
+                    next = Arrays.copyOf(next, Math.max(index + 1, next.length * 2));
+                }
+                // First layer listing a block wins
+                if (next[index] == 0) {
+                    next[index] = (byte) (layer + 1);
+                    ids.add(index);
+                }
+            }
+        }
+        classifiedIds = ids.stream().mapToInt(Integer::intValue).toArray();
+        table = next;
+        // Retried on use until at least one block type resolved (assets may not be loaded yet)
+        resolved = !ids.isEmpty();
+        lastAttempt = System.currentTimeMillis();
+    }
+
+    // Until something resolves, the empty table is returned between retries instead of locking every lookup
+    private byte[] table() {
+        if (!resolved && System.currentTimeMillis() - lastAttempt >= RETRY_MS) {
+            retry();
+        }
+        return table;
+    }
+
+    private synchronized void retry() {
+        // Another thread may have retried while this one waited for the lock
+        if (!resolved && System.currentTimeMillis() - lastAttempt >= RETRY_MS) {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.pauwma.barrierview.scan;
+
+/**
+ * Cached sections of one loaded chunk in a view, as returned by
+ * {@link BarrierChunkCache#sections}; detail chunks are outlined block by
+ * block, the others reduced to boxes.
+ */
+public class ChunkSections {
+
+    public final int chunkX, chunkZ;
+    public final boolean detail;
+    public final short[][][] sections;
+
+    public ChunkSections(int chunkX, int chunkZ, boolean detail, short[][][] sections) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.detail = detail;
+        this.sections = sections;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pauwma.barrierview.scan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The last frame built for each view, kept with the chunk sections it was
+ * built from, so a keep-alive for a view where nothing changed hands out that
+ * frame again instead of building an identical one.
+ *
+ * Cached sections are never modified in place, and a rescan that finds the
+ * same blocks keeps the old array, so a view whose chunks still hold the same
+ * section arrays shows the same blocks. Views nobody rendered for a while are
+ * dropped.
+ */
+public class RetainedFrames {
+
+    // Views not rendered for this long are dropped
+    private static final long IDLE_MS = 30_000L;
+
+    private final Map<ViewBands.ViewKey, RetainedFrame> views = new ConcurrentHashMap<>();
+
+    // The view's last frame if it was built from the same chunks and section arrays, otherwise null
+    public ViewFrame get(String world, int chunkX, int chunkZ, int band, int mode, List<ChunkSections> chunks) {
+        RetainedFrame retained = views.get(new ViewBands.ViewKey(world, chunkX, chunkZ, band, mode));
+        if (retained == null || !retained.builtFrom(chunks)) return null;
+        retained.usedAt = System.currentTimeMillis();
+        return retained.frame;
+    }
+
+    // The chunks list must not change after this
+    public void put(String world, int chunkX, int chunkZ, int band, int mode, List<ChunkSections> chunks,
+                    ViewFrame frame) {
+        views.put(new ViewBands.ViewKey(world, chunkX, chunkZ, band, mode), new RetainedFrame(chunks, frame));
+    }
+
+    public void expire(long now) {
+        views.values().removeIf(retained -> now - retained.usedAt > IDLE_MS);
+    }
+
+    public void removeWorld(String world) {
+        views.keySet().removeIf(key -> key.world.equals(world));
+    }
+
+    public int size() {
+        return views.size();
+    }
+
+    public void clear() {
+        views.clear();
+    }
+
+    private static class RetainedFrame {
+        final List<ChunkSections> chunks;
+        final ViewFrame frame;
+        volatile long usedAt = System.currentTimeMillis();
+
+        RetainedFrame(List<ChunkSections> chunks, ViewFrame frame) {
+            this.chunks = chunks;
+            this.frame = frame;
+        }
+
+        // Same chunks in the same order, each with the very same section arrays
+        boolean builtFrom(List<ChunkSections> current) {
+            if (current.size() != chunks.size()) return false;
+            for (int i = 0; i < current.size(); i++) {
+                ChunkSections a = chunks.get(i);
+                ChunkSections b = current.get(i);
+                if (a.chunkX != b.chunkX || a.chunkZ != b.chunkZ || a.detail != b.detail
+                        || a.sections.length != b.sections.length) {
+                    return false;
+                }
+                for (int section = 0; section < a.sections.length; section++) {
+                    if (a.sections[section] != b.sections[section]) return false;
+                }
+            }
+            return true;
+        }
+    }
+}
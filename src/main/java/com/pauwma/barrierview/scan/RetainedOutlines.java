@@ -0,0 +1,232 @@
+package com.pauwma.barrierview.scan;
+
+import com.pauwma.barrierview.geometry.IncrementalOutline;
+import com.pauwma.barrierview.geometry.SegmentList;
+import com.pauwma.barrierview.geometry.VoxelBitmap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grouped outlines of each view's detail area, kept between frames so a
+ * placed or broken block only updates the edges around it.
+ *
+ * A view remembers the section arrays it was last brought up to date with.
+ * Cached sections are never modified in place, so a section that is still the
+ * same array is unchanged; any other one is compared with the old array and
+ * only the blocks that differ are applied to the {@link IncrementalOutline}s.
+ * Views whose detail chunks came or went, or with more changes than a rebuild
+ * costs, are rebuilt from a bitmap. Views nobody rendered for a while are
+ * dropped.
+ */
+public class RetainedOutlines {
+
+    // Past this many changed blocks one bitmap pass is cheaper than block-by-block updates
+    private static final int MAX_CHANGES = 4096;
+
+    // Views not rendered for this long are dropped
+    private static final long IDLE_MS = 30_000L;
+
+    private final Map<ViewBands.ViewKey, ViewOutline> views = new ConcurrentHashMap<>();
+
+    public ViewOutline get(String world, int chunkX, int chunkZ, int band, int mode, int layerCount) {
+        ViewOutline view = views.compute(new ViewBands.ViewKey(world, chunkX, chunkZ, band, mode),
+                (key, old) -> old != null && old.layerCount() == layerCount ? old : new ViewOutline(layerCount));
+        view.usedAt = System.currentTimeMillis();
+        return view;
+    }
+
+    public void expire(long now) {
+        views.values().removeIf(view -> now - view.usedAt > IDLE_MS);
+    }
+
+    public void removeWorld(String world) {
+        views.keySet().removeIf(key -> key.world.equals(world));
+    }
+
+    public int size() {
+        return views.size();
+    }
+
+    public void clear() {
+        views.clear();
+    }
+
+    public static class ViewOutline {
+        private static final short[] NO_BLOCKS = new short[0];
+
+        private final IncrementalOutline[] layers;
+        // Detail chunk sections the outlines currently reflect, by chunk key
+        private Map<Long, short[][][]> applied = new HashMap<>();
+        private int minY = Integer.MIN_VALUE;
+        private int maxY = Integer.MIN_VALUE;
+        private volatile long usedAt;
+
+        ViewOutline(int layerCount) {
+            layers = new IncrementalOutline[layerCount];
+            for (int layer = 0; layer < layerCount; layer++) {
+                layers[layer] = new IncrementalOutline(layer);
+            }
+        }
+
+        // Bring the outlines in line with the detail chunks' sections in [minY, maxY]; bitmaps are per-layer
+        // scratch space for rebuilds. Returns the number of blocks applied one by one, or -1 after a rebuild
+        public synchronized int update(List<ChunkSections> chunks, int minY, int maxY,
+                                       VoxelBitmap[] bitmaps, boolean useVector) {
+            Map<Long, short[][][]> current = new HashMap<>();
+            for (ChunkSections chunk : chunks) {
+                if (chunk.detail) {
+                    current.put(chunkKey(chunk.chunkX, chunk.chunkZ), chunk.sections);
+                }
+            }
+
+            boolean rebuild = minY != this.minY || maxY != this.maxY || !current.keySet().equals(applied.keySet());
+            if (!rebuild) {
+                int changes = 0;
+                for (Map.Entry<Long, short[][][]> e : current.entrySet()) {
+                    changes += countChanges(applied.get(e.getKey()), e.getValue(), MAX_CHANGES - changes);
+                    if (changes > MAX_CHANGES) break;
+                }
+                rebuild = changes > MAX_CHANGES;
+            }
+
+            int changed = -1;
+            if (rebuild) {
+                rebuild(chunks, minY, maxY, bitmaps, useVector);
+            } else {
+                changed = 0;
+                for (ChunkSections chunk : chunks) {
+                    if (chunk.detail) {
+                        changed += applyChanges(chunk, this.applied.get(chunkKey(chunk.chunkX, chunk.chunkZ)),
+                                minY, maxY);
+                    }
+                }
+            }
+            this.applied = current;
+            this.minY = minY;
+            this.maxY = maxY;
+            return changed;
+        }
+
+        public int layerCount() {
+            return layers.length;
+        }
+
+        // Owned by the view and changed by the next update; copy it before handing it on
+        public SegmentList segments(int layer) {
+            return layers[layer].segments();
+        }
+
+        public int edgeCount(int layer) {
+            return layers[layer].edgeCount();
+        }
+
+        public int blockCount(int layer) {
+            return layers[layer].blockCount();
+        }
+
+        private void rebuild(List<ChunkSections> chunks, int minY, int maxY, VoxelBitmap[] bitmaps,
+                             boolean useVector) {
+            int minChunkX = Integer.MAX_VALUE, minChunkZ = Integer.MAX_VALUE;
+            int maxChunkX = Integer.MIN_VALUE, maxChunkZ = Integer.MIN_VALUE;
+            for (ChunkSections chunk : chunks) {
+                if (!chunk.detail) continue;
+                minChunkX = Math.min(minChunkX, chunk.chunkX);
+                minChunkZ = Math.min(minChunkZ, chunk.chunkZ);
+                maxChunkX = Math.max(maxChunkX, chunk.chunkX);
+                maxChunkZ = Math.max(maxChunkZ, chunk.chunkZ);
+            }
+            if (minChunkX == Integer.MAX_VALUE) {
+                for (IncrementalOutline outline : layers) {
+                    outline.clear();
+                }
+                return;
+            }
+
+            int size = BarrierChunkCache.CHUNK_SIZE;
+            for (VoxelBitmap bitmap : bitmaps) {
+                bitmap.reset(minChunkX * size, minY, minChunkZ * size,
+                        (maxChunkX - minChunkX + 1) * size, maxY - minY + 1, (maxChunkZ - minChunkZ + 1) * size);
+            }
+            for (ChunkSections chunk : chunks) {
+                if (!chunk.detail) continue;
+                BarrierChunkCache.forEachBlock(chunk.sections, chunk.chunkX, chunk.chunkZ, minY, maxY,
+                        (layer, x, y, z) -> {
+                            if (layer < layers.length) bitmaps[layer].set(x, y, z);
+                        });
+            }
+            for (int layer = 0; layer < layers.length; layer++) {
+                layers[layer].rebuild(bitmaps[layer], useVector);
+            }
+        }
+
+        // Positions in one array but not the other, across sections that are no longer the same array;
+        // stops counting once past limit
+        private int countChanges(short[][][] before, short[][][] after, int limit) {
+            int changes = 0;
+            for (int section = 0; section < after.length && changes <= limit; section++) {
+                if (before[section] == after[section]) continue;
+                for (int layer = 0; layer < layers.length; layer++) {
+                    changes += diff(layerOf(before[section], layer), layerOf(after[section], layer),
+                            null, 0, 0, 0, 0, 0);
+                }
+            }
+            return changes;
+        }
+
+        private int applyChanges(ChunkSections chunk, short[][][] before, int minY, int maxY) {
+            int changes = 0;
+            int chunkMinX = chunk.chunkX * BarrierChunkCache.CHUNK_SIZE;
+            int chunkMinZ = chunk.chunkZ * BarrierChunkCache.CHUNK_SIZE;
+            for (int section = 0; section < chunk.sections.length; section++) {
+                if (before[section] == chunk.sections[section]) continue;
+                int sectionMinY = section * BarrierChunkCache.SECTION_HEIGHT;
+                if (sectionMinY > maxY || sectionMinY + BarrierChunkCache.SECTION_HEIGHT <= minY) continue;
+                for (int layer = 0; layer < layers.length; layer++) {
+                    changes += diff(layerOf(before[section], layer), layerOf(chunk.sections[section], layer),
+                            layers[layer], chunkMinX, sectionMinY, chunkMinZ, minY, maxY);
+                }
+            }
+            return changes;
+        }
+
+        // Walk two sorted position arrays together; every position in only one of them is a change, applied
+        // to outline when given if it lies in [minY, maxY]. Returns the number of changes
+        private static int diff(short[] before, short[] after, IncrementalOutline outline,
+                                int chunkMinX, int sectionMinY, int chunkMinZ, int minY, int maxY) {
+            int i = 0, j = 0, changes = 0;
+            while (i < before.length || j < after.length) {
+                short local;
+                boolean present;
+                if (j == after.length || (i < before.length && before[i] < after[j])) {
+                    local = before[i++];
+                    present = false;
+                } else if (i == before.length || after[j] < before[i]) {
+                    local = after[j++];
+                    present = true;
+                } else {
+                    i++;
+                    j++;
+                    continue;
+                }
+                changes++;
+                int y = sectionMinY + ((local >> 10) & 31);
+                if (outline != null && y >= minY && y <= maxY) {
+                    outline.set(chunkMinX + (local & 31), y, chunkMinZ + ((local >> 5) & 31), present);
+                }
+            }
+            return changes;
+        }
+
+        private static short[] layerOf(short[][] blocks, int layer) {
+            return blocks == null || layer >= blocks.length ? NO_BLOCKS : blocks[layer];
+        }
+
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,44 @@
+package com.pauwma.barrierview.scan;
+
+/**
+ * Time one world job may spend scanning chunk sections.
+ *
+ * A section is the unit of work: once started it is finished, and the clock
+ * is checked before the next one. The first section of a job is always
+ * allowed, so scanning makes progress however small the budget. Sections
+ * that didn't fit are counted as deferred; they are scanned by a later job,
+ * which finds everything already done in the {@link BarrierChunkCache}.
+ */
+public class ScanBudget {
+
+    private final boolean unlimited;
+    private final long deadline;
+    private int started = 0;
+    private int deferred = 0;
+
+    // A budget of micros from now; 0 or less means no limit
+    public ScanBudget(long micros) {
+        this.unlimited = micros <= 0;
+        this.deadline = System.nanoTime() + micros * 1000L;
+    }
+
+    // True if another section may be scanned now, counting it as started
+    public boolean take() {
+        if (!unlimited && started > 0 && System.nanoTime() - deadline >= 0) return false;
+        started++;
+        return true;
+    }
+
+    // A section was left for a later job
+    public void defer() {
+        deferred++;
+    }
+
+    public int started() {
+        return started;
+    }
+
+    public int deferred() {
+        return deferred;
+    }
+}
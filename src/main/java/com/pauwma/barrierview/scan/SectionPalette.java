@@ -0,0 +1,52 @@
+package com.pauwma.barrierview.scan;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.chunk.BlockChunk;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.chunk.section.BlockSection;
+
+/**
+ * Answers "can this chunk section contain any of these blocks?" from the
+ * section's palette, so sections without them are never probed block by block.
+ *
+ * Every failure answers "maybe": a section is only skipped when the palette
+ * positively rules the block out.
+ */
+final class SectionPalette {
+
+    // Returned by blockIndex when the block type isn't registered
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private SectionPalette() {
+    }
+
+    // Numeric asset index of the block type, or UNKNOWN
+    static int blockIndex(String blockId) {
+        try {
+            int index = BlockType.getAssetMap().getIndex(blockId);
+            return index < 0 ? UNKNOWN : index;
+        } catch (RuntimeException | LinkageError e) {
+            // Asset map not ready or API differs
+            return UNKNOWN;
+        }
+    }
+
+    // True unless the palette proves none of the block ids is in the section
+    static boolean mayContain(WorldChunk chunk, int section, int[] blockIndices) {
+        if (blockIndices.length == 0) return true;
+        try {
+            BlockChunk blockChunk = chunk.getBlockChunk();
+            if (blockChunk == null) return true;
+            BlockSection blockSection = blockChunk.getSectionAtIndex(section);
+            // Sections that were never written hold only air
+            if (blockSection == null) return false;
+            for (int blockIndex : blockIndices) {
+                if (blockSection.contains(blockIndex)) return true;
+            }
+            return false;
+        } catch (RuntimeException | LinkageError e) {
+            // Palette not readable; fall back to probing
+            return true;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pauwma.barrierview.scan;
+
+import java.util.Objects;
+
+/**
+ * How views are keyed: players in the same chunk and Y-band see the same
+ * view, so one snapshot and frame serves all of them.
+ *
+ * A band is {@link #BAND_HEIGHT} blocks tall; its view covers the band plus
+ * {@link #VIEW_MARGIN} blocks above and below, so every player inside it sees
+ * at least as far vertically as a per-player scan would.
+ */
+public final class ViewBands {
+
+    public static final int BAND_HEIGHT = 16;
+    public static final int VIEW_MARGIN = 32;
+
+    private ViewBands() {
+    }
+
+    public static int bandOf(int y) {
+        return Math.floorDiv(y, BAND_HEIGHT);
+    }
+
+    public static int bandMinY(int band) {
+        return band * BAND_HEIGHT - VIEW_MARGIN;
+    }
+
+    public static int bandMaxY(int band) {
+        return band * BAND_HEIGHT + BAND_HEIGHT - 1 + VIEW_MARGIN;
+    }
+
+    // Identifies the views RetainedOutlines keeps
+    static class ViewKey {
+        final String world;
+        final int chunkX, chunkZ, band, mode;
+
+        ViewKey(String world, int chunkX, int chunkZ, int band, int mode) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.band = band;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ViewKey)) return false;
+            ViewKey other = (ViewKey) o;
+            return chunkX == other.chunkX && chunkZ == other.chunkZ && band == other.band
+                    && mode == other.mode && world.equals(other.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(world, chunkX, chunkZ, band, mode);
+        }
+    }
+}
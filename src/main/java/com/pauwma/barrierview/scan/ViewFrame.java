@@ -0,0 +1,23 @@
+package com.pauwma.barrierview.scan;
+
+import com.pauwma.barrierview.geometry.SegmentList;
+
+/**
+ * Geometry computed for one view: the segments to draw, how many unit edges
+ * they were merged from and how many highlighted blocks they show. Shared between players, so never modified
+ * after it's built.
+ */
+public class ViewFrame {
+
+    public static final ViewFrame EMPTY = new ViewFrame(new SegmentList(0), 0, 0);
+
+    public final SegmentList segments;
+    public final int unitEdges;
+    public final int blocks;
+
+    public ViewFrame(SegmentList segments, int unitEdges, int blocks) {
+        this.segments = segments;
+        this.unitEdges = unitEdges;
+        this.blocks = blocks;
+    }
+}
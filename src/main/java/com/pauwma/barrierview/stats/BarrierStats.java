@@ -0,0 +1,299 @@
+package com.pauwma.barrierview.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for one scope: the whole server, one world
+ * or one player. All recording methods are thread-safe and cheap enough to
+ * call from the world thread, and also record into the parent scope if any.
+ */
+public class BarrierStats implements BarrierStatsMBean {
+
+    private final BarrierStats parent;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder sectionsScanned = new LongAdder();
+    private final LongAdder sectionsSkipped = new LongAdder();
+    private final LongAdder sectionsFromIndex = new LongAdder();
+    private final LongAdder sectionsDeferred = new LongAdder();
+    private final LongAdder blocksProbed = new LongAdder();
+    private final LongAdder barriersFound = new LongAdder();
+    private final LongAdder unitEdges = new LongAdder();
+    private final LongAdder shapes = new LongAdder();
+    private final LongAdder packetsWritten = new LongAdder();
+    private final LongAdder packetsBuilt = new LongAdder();
+    private final LongAdder cycleOverruns = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder sharedViewHits = new LongAdder();
+    private final LongAdder recolors = new LongAdder();
+
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+    private final LatencyHistogram worldJobLatency = new LatencyHistogram();
+
+    private volatile String lastError = "";
+
+    public BarrierStats() {
+        this(null);
+    }
+
+    public BarrierStats(BarrierStats parent) {
+        this.parent = parent;
+    }
+
+    public void recordScan(long nanos, int blocks, int barriers) {
+        sectionsScanned.increment();
+        blocksProbed.add(blocks);
+        barriersFound.add(barriers);
+        scanLatency.recordNanos(nanos);
+        if (parent != null) parent.recordScan(nanos, blocks, barriers);
+    }
+
+    // A section whose palette rules out barriers, so no block was probed
+    public void recordSectionSkipped() {
+        sectionsSkipped.increment();
+        if (parent != null) parent.recordSectionSkipped();
+    }
+
+    // A section left for a later world job because the scan budget was used up
+    public void recordScanDeferred() {
+        sectionsDeferred.increment();
+        if (parent != null) parent.recordScanDeferred();
+    }
+
+    // A section filled from the on-disk index instead of a scan
+    public void recordIndexHit() {
+        sectionsFromIndex.increment();
+        if (parent != null) parent.recordIndexHit();
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+        if (parent != null) parent.recordCacheHit();
+    }
+
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+        if (parent != null) parent.recordCacheMiss();
+    }
+
+    public void recordFrame(long nanos) {
+        frameLatency.recordNanos(nanos);
+        if (parent != null) parent.recordFrame(nanos);
+    }
+
+    public void recordSharedViewHit() {
+        sharedViewHits.increment();
+        if (parent != null) parent.recordSharedViewHit();
+    }
+
+    public void recordRender(int edges, int shapeCount, int packets) {
+        renders.increment();
+        unitEdges.add(edges);
+        shapes.add(shapeCount);
+        packetsWritten.add(packets);
+        if (parent != null) parent.recordRender(edges, shapeCount, packets);
+    }
+
+    public void recordPackets(int packets) {
+        packetsWritten.add(packets);
+        if (parent != null) parent.recordPackets(packets);
+    }
+
+    // A player's cached shapes re-sent in a new color, without scanning or outlining
+    public void recordRecolor() {
+        recolors.increment();
+        if (parent != null) parent.recordRecolor();
+    }
+
+    // Packets built for this write instead of taken from the packet cache
+    public void recordPacketsBuilt(int packets) {
+        packetsBuilt.add(packets);
+        if (parent != null) parent.recordPacketsBuilt(packets);
+    }
+
+    public void recordWorldJob(long nanos) {
+        worldJobLatency.recordNanos(nanos);
+        if (parent != null) parent.recordWorldJob(nanos);
+    }
+
+    public void recordOverrun() {
+        cycleOverruns.increment();
+        if (parent != null) parent.recordOverrun();
+    }
+
+    public void recordError(Throwable e) {
+        errors.increment();
+        lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (parent != null) parent.recordError(e);
+    }
+
+    @Override
+    public long getRenders() {
+        return renders.sum();
+    }
+
+    @Override
+    public long getSectionsScanned() {
+        return sectionsScanned.sum();
+    }
+
+    @Override
+    public long getSectionsSkipped() {
+        return sectionsSkipped.sum();
+    }
+
+    @Override
+    public long getSectionsFromIndex() {
+        return sectionsFromIndex.sum();
+    }
+
+    @Override
+    public long getSectionsDeferred() {
+        return sectionsDeferred.sum();
+    }
+
+    @Override
+    public long getBlocksProbed() {
+        return blocksProbed.sum();
+    }
+
+    @Override
+    public long getBarriersFound() {
+        return barriersFound.sum();
+    }
+
+    @Override
+    public long getUnitEdges() {
+        return unitEdges.sum();
+    }
+
+    @Override
+    public long getShapes() {
+        return shapes.sum();
+    }
+
+    @Override
+    public long getPacketsWritten() {
+        return packetsWritten.sum();
+    }
+
+    @Override
+    public long getPacketsBuilt() {
+        return packetsBuilt.sum();
+    }
+
+    @Override
+    public long getCycleOverruns() {
+        return cycleOverruns.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getSharedViewHits() {
+        return sharedViewHits.sum();
+    }
+
+    @Override
+    public long getRecolors() {
+        return recolors.sum();
+    }
+
+    @Override
+    public double getScanMeanMicros() {
+        return scanLatency.getMeanMicros();
+    }
+
+    @Override
+    public long getScanP99Micros() {
+        return scanLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getScanMaxMicros() {
+        return scanLatency.getMaxMicros();
+    }
+
+    @Override
+    public double getFrameMeanMicros() {
+        return frameLatency.getMeanMicros();
+    }
+
+    @Override
+    public long getFrameP99Micros() {
+        return frameLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getFrameMaxMicros() {
+        return frameLatency.getMaxMicros();
+    }
+
+    @Override
+    public double getWorldJobMeanMicros() {
+        return worldJobLatency.getMeanMicros();
+    }
+
+    @Override
+    public long getWorldJobP99Micros() {
+        return worldJobLatency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getWorldJobMaxMicros() {
+        return worldJobLatency.getMaxMicros();
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void reset() {
+        renders.reset();
+        sectionsScanned.reset();
+        sectionsSkipped.reset();
+        sectionsFromIndex.reset();
+        sectionsDeferred.reset();
+        blocksProbed.reset();
+        barriersFound.reset();
+        unitEdges.reset();
+        shapes.reset();
+        packetsWritten.reset();
+        packetsBuilt.reset();
+        cycleOverruns.reset();
+        errors.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        sharedViewHits.reset();
+        recolors.reset();
+        scanLatency.reset();
+        frameLatency.reset();
+        worldJobLatency.reset();
+        lastError = "";
+    }
+}
@@ -0,0 +1,65 @@
+package com.pauwma.barrierview.stats;
+
+/**
+ * JMX view of one {@link BarrierStats} scope (global or a single world).
+ */
+public interface BarrierStatsMBean {
+
+    long getRenders();
+
+    long getSectionsScanned();
+
+    long getSectionsSkipped();
+
+    long getSectionsFromIndex();
+
+    long getSectionsDeferred();
+
+    long getBlocksProbed();
+
+    long getBarriersFound();
+
+    long getUnitEdges();
+
+    long getShapes();
+
+    long getPacketsWritten();
+
+    long getPacketsBuilt();
+
+    long getCycleOverruns();
+
+    long getErrors();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getCacheHitRate();
+
+    long getSharedViewHits();
+
+    long getRecolors();
+
+    double getScanMeanMicros();
+
+    long getScanP99Micros();
+
+    long getScanMaxMicros();
+
+    double getFrameMeanMicros();
+
+    long getFrameP99Micros();
+
+    long getFrameMaxMicros();
+
+    double getWorldJobMeanMicros();
+
+    long getWorldJobP99Micros();
+
+    long getWorldJobMaxMicros();
+
+    String getLastError();
+
+    void reset();
+}
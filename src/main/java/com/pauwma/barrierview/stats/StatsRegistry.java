@@ -0,0 +1,107 @@
+package com.pauwma.barrierview.stats;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the global, per-world and per-player {@link BarrierStats}. The global
+ * and per-world scopes are registered as JMX MBeans under
+ * {@code com.pauwma.barrierview:type=Stats,scope=...}.
+ */
+public final class StatsRegistry {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final String DOMAIN = "com.pauwma.barrierview";
+
+    private static final BarrierStats GLOBAL = new BarrierStats();
+    private static final Map<String, BarrierStats> WORLDS = new ConcurrentHashMap<>();
+    private static final Map<UUID, BarrierStats> PLAYERS = new ConcurrentHashMap<>();
+    private static final Map<UUID, String> PLAYER_NAMES = new ConcurrentHashMap<>();
+
+    private StatsRegistry() {
+    }
+
+    public static BarrierStats global() {
+        return GLOBAL;
+    }
+
+    public static BarrierStats world(String worldName) {
+        return WORLDS.computeIfAbsent(worldName, name -> {
+            BarrierStats stats = new BarrierStats(GLOBAL);
+            register(stats, "World", name);
+            return stats;
+        });
+    }
+
+    // Per-player stats only count what's specific to the player (renders, packets)
+    public static BarrierStats player(UUID playerUuid, String name) {
+        PLAYER_NAMES.put(playerUuid, name);
+        return PLAYERS.computeIfAbsent(playerUuid, uuid -> new BarrierStats());
+    }
+
+    public static Map<UUID, BarrierStats> players() {
+        return PLAYERS;
+    }
+
+    public static String playerName(UUID playerUuid) {
+        return PLAYER_NAMES.getOrDefault(playerUuid, playerUuid.toString());
+    }
+
+    public static Map<String, BarrierStats> worlds() {
+        return WORLDS;
+    }
+
+    public static void removePlayer(UUID playerUuid) {
+        PLAYERS.remove(playerUuid);
+        PLAYER_NAMES.remove(playerUuid);
+    }
+
+    public static void start() {
+        register(GLOBAL, "Global", "all");
+    }
+
+    public static void stop() {
+        unregister("Global", "all");
+        for (String world : WORLDS.keySet()) {
+            unregister("World", world);
+        }
+        WORLDS.clear();
+        PLAYERS.clear();
+        PLAYER_NAMES.clear();
+    }
+
+    private static void register(BarrierStats stats, String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(stats, objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.atWarning().log("[BarrierView] Could not register stats MBean for " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void unregister(String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            // Already gone
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) throws Exception {
+        return new ObjectName(DOMAIN + ":type=Stats,scope=" + type + ",name=" + ObjectName.quote(name));
+    }
+}
@@ -0,0 +1,39 @@
+package com.pauwma.barrierview.systems;
+
+import com.hypixel.hytale.component.Archetype;
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.EntityEventSystem;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.event.events.ecs.PlaceBlockEvent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.pauwma.barrierview.BarrierViewManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+public class BlockPlaceSystem extends EntityEventSystem<EntityStore, PlaceBlockEvent> {
+
+    public BlockPlaceSystem() {
+        super(PlaceBlockEvent.class);
+    }
+
+    @Override
+    public void handle(int index,
+                       @Nonnull ArchetypeChunk<EntityStore> archetypeChunk,
+                       @Nonnull Store<EntityStore> store,
+                       @Nonnull CommandBuffer<EntityStore> commandBuffer,
+                       @Nonnull PlaceBlockEvent event) {
+        Vector3i target = event.getTargetBlock();
+        if (target == null) return;
+        BarrierViewManager.onBlockChanged(store.getExternalData().getWorld(), target.x, target.y, target.z);
+    }
+
+    @Nullable
+    @Override
+    public Query<EntityStore> getQuery() {
+        return Archetype.empty();
+    }
+}
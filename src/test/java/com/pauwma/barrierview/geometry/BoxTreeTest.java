@@ -0,0 +1,148 @@
+package com.pauwma.barrierview.geometry;
+
+import com.pauwma.barrierview.geometry.Volumes.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Range, point and nearest queries against a linear scan over the same
+ * boxes, while boxes come and go, and on regions packed from blocks the way
+ * the barrier regions are built.
+ */
+class BoxTreeTest {
+
+    @Test
+    void matchesLinearScanWhileBoxesComeAndGo() {
+        Random random = new Random(5);
+        BoxTree tree = new BoxTree();
+        Map<Integer, BoundingBox> live = new HashMap<>();
+
+        for (int step = 0; step < 2000; step++) {
+            if (live.isEmpty() || random.nextInt(3) != 0) {
+                BoundingBox box = randomBox(random, 500, 40);
+                int leaf = tree.insert(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, step);
+                live.put(leaf, box);
+            } else {
+                List<Integer> leaves = new ArrayList<>(live.keySet());
+                int leaf = leaves.get(random.nextInt(leaves.size()));
+                tree.remove(leaf);
+                live.remove(leaf);
+            }
+
+            if (step % 20 != 0) continue;
+            assertEquals(live.size(), tree.size());
+            // Balanced: no deeper than twice a perfect tree
+            assertTrue(tree.height() <= 2 * (32 - Integer.numberOfLeadingZeros(live.size())) + 1,
+                    "height " + tree.height() + " for " + live.size() + " boxes");
+
+            for (int query = 0; query < 20; query++) {
+                BoundingBox range = randomBox(random, 500, 200);
+                Set<Integer> expected = new HashSet<>();
+                live.forEach((leaf, box) -> {
+                    if (overlaps(box, range)) expected.add(leaf);
+                });
+                Set<Integer> found = new HashSet<>();
+                tree.query(range.minX, range.minY, range.minZ, range.maxX, range.maxY, range.maxZ, found::add);
+                assertEquals(expected, found, "range, step " + step);
+
+                int x = random.nextInt(1200) - 600, y = random.nextInt(1200) - 600, z = random.nextInt(1200) - 600;
+                Set<Integer> containing = new HashSet<>();
+                live.forEach((leaf, box) -> {
+                    if (distanceSq(box, x, y, z) == 0) containing.add(leaf);
+                });
+                found.clear();
+                tree.queryPoint(x, y, z, found::add);
+                assertEquals(containing, found, "point, step " + step);
+
+                // Ties may pick either box, so compare distances
+                long nearest = Long.MAX_VALUE;
+                for (BoundingBox box : live.values()) {
+                    nearest = Math.min(nearest, distanceSq(box, x, y, z));
+                }
+                int leaf = tree.nearest(x, y, z);
+                assertEquals(nearest, distanceSq(live.get(leaf), x, y, z), "nearest, step " + step);
+            }
+        }
+    }
+
+    @Test
+    void packedRegionsAnswerLikeTheirBlocks() {
+        Random random = new Random(9);
+        VoxelBitmap bitmap = new VoxelBitmap();
+        for (int round = 0; round < 100; round++) {
+            Set<BlockPos> blocks = Volumes.randomBlocks(random, round);
+            if (blocks.isEmpty()) continue;
+            Volumes.fill(bitmap, blocks, 0);
+            BoxTree tree = new BoxTree();
+            for (BoundingBox box : CuboidPacker.pack(bitmap)) {
+                tree.insert(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, 0);
+            }
+
+            BlockPos origin = blocks.iterator().next();
+            for (int query = 0; query < 200; query++) {
+                int x = origin.x() + random.nextInt(31) - 15;
+                int y = origin.y() + random.nextInt(31) - 15;
+                int z = origin.z() + random.nextInt(31) - 15;
+
+                // A point is in a region exactly when it is a block
+                boolean[] inside = {false};
+                tree.queryPoint(x, y, z, leaf -> inside[0] = true);
+                assertEquals(blocks.contains(new BlockPos(x, y, z)), inside[0], "point, round " + round);
+
+                // The nearest region is as close as the nearest block
+                long nearest = Long.MAX_VALUE;
+                for (BlockPos pos : blocks) {
+                    long dx = pos.x() - x, dy = pos.y() - y, dz = pos.z() - z;
+                    nearest = Math.min(nearest, dx * dx + dy * dy + dz * dz);
+                }
+                assertEquals(nearest, tree.distanceSq(tree.nearest(x, y, z), x, y, z), "nearest, round " + round);
+
+                // A range finds regions exactly when it holds a block
+                int size = 1 + random.nextInt(4);
+                boolean expected = false;
+                for (BlockPos pos : blocks) {
+                    if (pos.x() >= x && pos.x() < x + size && pos.y() >= y && pos.y() < y + size
+                            && pos.z() >= z && pos.z() < z + size) {
+                        expected = true;
+                        break;
+                    }
+                }
+                boolean[] found = {false};
+                tree.query(x, y, z, x + size, y + size, z + size, leaf -> found[0] = true);
+                assertEquals(expected, found[0], "range, round " + round);
+            }
+        }
+    }
+
+    // A box of up to maxSize per side somewhere in [-extent, extent)
+    private static BoundingBox randomBox(Random random, int extent, int maxSize) {
+        int x = random.nextInt(2 * extent) - extent;
+        int y = random.nextInt(2 * extent) - extent;
+        int z = random.nextInt(2 * extent) - extent;
+        return new BoundingBox(x, y, z, x + 1 + random.nextInt(maxSize), y + 1 + random.nextInt(maxSize),
+                z + 1 + random.nextInt(maxSize));
+    }
+
+    private static boolean overlaps(BoundingBox a, BoundingBox b) {
+        return a.minX < b.maxX && b.minX < a.maxX && a.minY < b.maxY && b.minY < a.maxY
+                && a.minZ < b.maxZ && b.minZ < a.maxZ;
+    }
+
+    // Squared distance from the block at (x, y, z) to the nearest block of the box
+    private static long distanceSq(BoundingBox box, int x, int y, int z) {
+        long dx = Math.max(0, Math.max(box.minX - x, x - (box.maxX - 1)));
+        long dy = Math.max(0, Math.max(box.minY - y, y - (box.maxY - 1)));
+        long dz = Math.max(0, Math.max(box.minZ - z, z - (box.maxZ - 1)));
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
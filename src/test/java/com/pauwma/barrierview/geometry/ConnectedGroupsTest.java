@@ -0,0 +1,101 @@
+package com.pauwma.barrierview.geometry;
+
+import com.pauwma.barrierview.geometry.Volumes.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Packed-long grouping against the object-set search it replaced, compared
+ * as sorted lists of group bounds since neither promises an order.
+ */
+class ConnectedGroupsTest {
+
+    @Test
+    void matchesSetGroupingOnRandomVolumes() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            Set<BlockPos> blocks = Volumes.randomBlocks(random, round);
+
+            List<String> expected = describe(setGroups(blocks));
+            List<String> actual = describe(ConnectedGroups.find(Volumes.pack(blocks)));
+
+            assertEquals(expected, actual, "round " + round);
+        }
+    }
+
+    @Test
+    void diagonalNeighboursShareAGroup() {
+        LongHashSet blocks = new LongHashSet();
+        blocks.add(PackedPos.pack(-1, -1, -1));
+        blocks.add(PackedPos.pack(0, 0, 0));
+        blocks.add(PackedPos.pack(5, 0, 0));
+        assertEquals(List.of("-1,-1,-1..1,1,1", "5,0,0..6,1,1"), describe(ConnectedGroups.find(blocks)));
+    }
+
+    // The breadth-first search as it was written against Set<BlockPos>, before positions were packed
+    private static List<BoundingBox> setGroups(Set<BlockPos> positions) {
+        List<BoundingBox> groups = new ArrayList<>();
+        Set<BlockPos> visited = new HashSet<>();
+
+        for (BlockPos start : positions) {
+            if (visited.contains(start)) continue;
+
+            Set<BlockPos> group = new HashSet<>();
+            Queue<BlockPos> queue = new ArrayDeque<>();
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                BlockPos current = queue.poll();
+                if (visited.contains(current)) continue;
+                if (!positions.contains(current)) continue;
+
+                visited.add(current);
+                group.add(current);
+
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            if (dx == 0 && dy == 0 && dz == 0) continue;
+                            BlockPos neighbor = new BlockPos(current.x() + dx, current.y() + dy, current.z() + dz);
+                            if (positions.contains(neighbor) && !visited.contains(neighbor)) {
+                                queue.add(neighbor);
+                            }
+                        }
+                    }
+                }
+            }
+
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            for (BlockPos pos : group) {
+                minX = Math.min(minX, pos.x());
+                minY = Math.min(minY, pos.y());
+                minZ = Math.min(minZ, pos.z());
+                maxX = Math.max(maxX, pos.x() + 1);
+                maxY = Math.max(maxY, pos.y() + 1);
+                maxZ = Math.max(maxZ, pos.z() + 1);
+            }
+            groups.add(new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ));
+        }
+        return groups;
+    }
+
+    private static List<String> describe(List<BoundingBox> boxes) {
+        List<String> described = new ArrayList<>();
+        for (BoundingBox box : boxes) {
+            described.add(box.minX + "," + box.minY + "," + box.minZ + ".." + box.maxX + "," + box.maxY + "," + box.maxZ);
+        }
+        Collections.sort(described);
+        return described;
+    }
+}
@@ -0,0 +1,62 @@
+package com.pauwma.barrierview.geometry;
+
+import com.pauwma.barrierview.geometry.Volumes.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The greedy cover against the blocks it was packed from: every block is in
+ * exactly one box and no box holds air.
+ */
+class CuboidPackerTest {
+
+    @Test
+    void coversEveryBlockExactlyOnce() {
+        Random random = new Random(11);
+        VoxelBitmap bitmap = new VoxelBitmap();
+        for (int round = 0; round < 300; round++) {
+            Set<BlockPos> blocks = Volumes.randomBlocks(random, round);
+            Volumes.fill(bitmap, blocks, random.nextInt(3));
+
+            Set<BlockPos> covered = new HashSet<>();
+            for (BoundingBox box : CuboidPacker.pack(bitmap)) {
+                for (int x = box.minX; x < box.maxX; x++) {
+                    for (int y = box.minY; y < box.maxY; y++) {
+                        for (int z = box.minZ; z < box.maxZ; z++) {
+                            BlockPos pos = new BlockPos(x, y, z);
+                            assertTrue(blocks.contains(pos), "round " + round + ": box covers air at " + pos);
+                            assertTrue(covered.add(pos), "round " + round + ": boxes overlap at " + pos);
+                        }
+                    }
+                }
+            }
+            assertEquals(blocks, covered, "round " + round);
+        }
+    }
+
+    @Test
+    void solidVolumeIsOneBox() {
+        // Wider than one bitmap word, at negative coordinates
+        VoxelBitmap bitmap = new VoxelBitmap();
+        bitmap.reset(-100, -3, -7, 100, 5, 6);
+        for (int x = -100; x < 0; x++) {
+            for (int y = -3; y < 2; y++) {
+                for (int z = -7; z < -1; z++) {
+                    bitmap.set(x, y, z);
+                }
+            }
+        }
+
+        List<BoundingBox> boxes = CuboidPacker.pack(bitmap);
+        assertEquals(1, boxes.size());
+        BoundingBox box = boxes.get(0);
+        assertEquals(List.of(-100, -3, -7, 0, 2, -1), List.of(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ));
+    }
+}
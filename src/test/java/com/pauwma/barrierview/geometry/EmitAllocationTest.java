@@ -0,0 +1,119 @@
+package com.pauwma.barrierview.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bytes allocated per edge on the steady-state emit path, read from the
+ * thread's allocation counter: {@link ShapeSync} diffing and queueing a frame,
+ * then every queued shape looked up in a {@link ShapeCache}, which is what
+ * ShapeStream does before writing the cached packet. Grouped and individual
+ * frames are both checked, once the tables have grown to the frame size.
+ */
+class EmitAllocationTest {
+
+    // Leaves room for the counter reads themselves, spread over a few hundred thousand edges
+    private static final double MAX_BYTES_PER_EDGE = 1.0;
+
+    private static final long REFRESH_AFTER_MS = 7_000L;
+    private static final int RED = 0xFF0000;
+    private static final int WARMUP_PASSES = 50;
+    private static final int MEASURED_PASSES = 100;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void keepAliveRefreshAllocatesNothingPerEdge() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        LongHashSet edges = randomEdges(new Random(17));
+        SegmentList grouped = new SegmentList();
+        EdgeMerger.merge(edges, grouped);
+        SegmentList individual = new SegmentList();
+        edges.forEach(edge -> individual.add(PackedPos.axis(edge), PackedPos.x(edge), PackedPos.y(edge),
+                PackedPos.z(edge), 1));
+
+        checkRefresh(grouped, "grouped");
+        checkRefresh(individual, "individual");
+    }
+
+    @Test
+    void unchangedFrameQueuesNothing() {
+        SegmentList frame = new SegmentList();
+        EdgeMerger.merge(randomEdges(new Random(19)), frame);
+        ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+        ShapeCache<long[]> cache = new ShapeCache<>(frame.size(), EmitAllocationTest::build);
+
+        assertEquals(frame.size(), emit(sync, cache, frame, 0, 0, 0, 0));
+        assertEquals(0, emit(sync, cache, frame, REFRESH_AFTER_MS - 1, 5, 5, 5));
+        assertEquals(frame.size(), emit(sync, cache, frame, REFRESH_AFTER_MS, 5, 5, 5));
+        assertEquals(frame.size(), cache.built());
+    }
+
+    // Every pass is a keep-alive refresh seen from a new spot, so the whole frame is queued, sorted and
+    // looked up again
+    private void checkRefresh(SegmentList frame, String name) {
+        ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+        ShapeCache<long[]> cache = new ShapeCache<>(frame.size(), EmitAllocationTest::build);
+        long now = 0;
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            now += REFRESH_AFTER_MS;
+            emit(sync, cache, frame, now, pass, -pass, pass * 0.5);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        long emitted = 0;
+        for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+            now += REFRESH_AFTER_MS;
+            emitted += emit(sync, cache, frame, now, -pass, pass, pass * 0.25);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals((long) frame.size() * MEASURED_PASSES, emitted, name);
+        assertEquals(frame.size(), cache.built(), name);
+        double perEdge = (double) allocated / emitted;
+        assertTrue(perEdge <= MAX_BYTES_PER_EDGE, String.format(
+                "%s: %.2f bytes per edge (%d bytes for %d edges)", name, perEdge, allocated, emitted));
+    }
+
+    // Like ShapeStream.sync with an unlimited budget; returns the number of shapes emitted
+    private static int emit(ShapeSync sync, ShapeCache<long[]> cache, SegmentList frame, long now,
+                            double viewerX, double viewerY, double viewerZ) {
+        sync.colorKeys(1)[0] = RED;
+        sync.update(frame, now, viewerX, viewerY, viewerZ);
+        ShapeQueue pending = sync.pending();
+        int emitted = 0;
+        while (!pending.isEmpty()) {
+            SegmentList segments = pending.segments();
+            int i = pending.next();
+            long[] shape = cache.get(segments, i, sync.colorKey(segments.layer(i)));
+            if (shape[0] == segments.key(i)) {
+                emitted++;
+            }
+            sync.sent(segments, i);
+        }
+        return emitted;
+    }
+
+    // Stands in for a packet: the segment's key
+    private static long[] build(SegmentList segments, int i) {
+        return new long[]{segments.key(i)};
+    }
+
+    private static LongHashSet randomEdges(Random random) {
+        LongHashSet edges = new LongHashSet();
+        for (int round = 0; edges.size() < 3000; round++) {
+            OutlineBuilder.computeEdges(Volumes.pack(Volumes.randomBlocks(random, round)), edges);
+        }
+        return edges;
+    }
+}
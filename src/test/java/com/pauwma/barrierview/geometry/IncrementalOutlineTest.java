@@ -0,0 +1,73 @@
+package com.pauwma.barrierview.geometry;
+
+import com.pauwma.barrierview.geometry.Volumes.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Block-by-block outline updates against a full recompute after every edit,
+ * starting both empty and from a bitmap rebuild, on both sides of the origin.
+ */
+class IncrementalOutlineTest {
+
+    @Test
+    void matchesFullRecomputeAfterEveryEdit() {
+        Random random = new Random(3);
+        VoxelBitmap bitmap = new VoxelBitmap();
+        for (int round = 0; round < 60; round++) {
+            IncrementalOutline outline = new IncrementalOutline(1);
+            Set<BlockPos> blocks = Volumes.randomBlocks(random, round);
+            if (round % 2 == 0) {
+                // Start from the same blocks through a rebuild
+                Volumes.fill(bitmap, blocks, 0);
+                outline.rebuild(bitmap, false);
+            } else {
+                for (BlockPos pos : blocks) {
+                    outline.set(pos.x(), pos.y(), pos.z(), true);
+                }
+            }
+            check(outline, blocks, "round " + round + " start");
+
+            // Edits stay within a box a little larger than the shape, so runs are split and joined often
+            BlockPos origin = blocks.isEmpty() ? new BlockPos(-20, 5, 30) : blocks.iterator().next();
+            for (int edit = 0; edit < 200; edit++) {
+                BlockPos pos = new BlockPos(origin.x() + random.nextInt(14) - 2,
+                        origin.y() + random.nextInt(14) - 2, origin.z() + random.nextInt(14) - 2);
+                boolean present = random.nextBoolean();
+                boolean changed = present ? blocks.add(pos) : blocks.remove(pos);
+
+                assertEquals(changed, outline.set(pos.x(), pos.y(), pos.z(), present), "round " + round);
+                check(outline, blocks, "round " + round + " edit " + edit);
+            }
+        }
+    }
+
+    private static void check(IncrementalOutline outline, Set<BlockPos> blocks, String message) {
+        LongHashSet edges = new LongHashSet();
+        OutlineBuilder.computeEdges(Volumes.pack(blocks), edges);
+        SegmentList merged = new SegmentList();
+        EdgeMerger.merge(edges, merged, 1);
+
+        assertEquals(blocks.size(), outline.blockCount(), message);
+        assertEquals(edges.size(), outline.edgeCount(), message);
+        assertEquals(describe(merged), describe(outline.segments()), message);
+    }
+
+    // Segments as sorted strings, since neither side promises an order
+    private static List<String> describe(SegmentList segments) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            lines.add(segments.axis(i) + " " + segments.x(i) + " " + segments.y(i) + " " + segments.z(i)
+                    + " " + segments.length(i) + " " + segments.layer(i));
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+}
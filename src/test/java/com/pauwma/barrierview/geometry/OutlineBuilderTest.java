@@ -0,0 +1,176 @@
+package com.pauwma.barrierview.geometry;
+
+import com.pauwma.barrierview.geometry.Volumes.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The packed-long and bitmap outlines against the object-set edge checks they
+ * replaced, on random volumes on both sides of the origin.
+ */
+class OutlineBuilderTest {
+
+    @Test
+    void matchesSetOutlineOnRandomVolumes() {
+        Random random = new Random(42);
+        for (int round = 0; round < 300; round++) {
+            Set<BlockPos> blocks = Volumes.randomBlocks(random, round);
+            LongHashSet packed = Volumes.pack(blocks);
+
+            LongHashSet edges = new LongHashSet();
+            OutlineBuilder.computeEdges(packed, edges);
+
+            assertEquals(setOutline(blocks), Volumes.toSet(edges), "round " + round);
+        }
+    }
+
+    @Test
+    void bitmapMatchesSetOutlineOnRandomShapes() {
+        Random random = new Random(7);
+        VoxelBitmap bitmap = new VoxelBitmap();
+        for (int round = 0; round < 300; round++) {
+            // Every third shape is stretched along X so rows span several words
+            Set<BlockPos> blocks = round % 3 == 2 ? wideBlocks(random) : Volumes.randomBlocks(random, round);
+            Set<Long> expected = setOutline(blocks);
+
+            // A random margin around the shape, so not every shape touches the bitmap's padding
+            Volumes.fill(bitmap, blocks, random.nextInt(3));
+
+            LongHashSet edges = new LongHashSet();
+            OutlineBuilder.computeEdges(bitmap, edges, false);
+            assertEquals(expected, Volumes.toSet(edges), "scalar, round " + round);
+
+            if (OutlineBuilder.VECTOR_SUPPORTED) {
+                edges.clear();
+                OutlineBuilder.computeEdges(bitmap, edges, true);
+                assertEquals(expected, Volumes.toSet(edges), "vector, round " + round);
+            }
+        }
+    }
+
+    @Test
+    void singleBlockHasTwelveEdges() {
+        LongHashSet blocks = new LongHashSet();
+        blocks.add(PackedPos.pack(-5, 3, -7));
+        LongHashSet edges = new LongHashSet();
+        OutlineBuilder.computeEdges(blocks, edges);
+        assertEquals(12, edges.size());
+    }
+
+    @Test
+    void flatFaceHasNoInnerEdges() {
+        // A 3x3 floor only keeps its border: 4 sides of 3 edges, top and bottom, plus 4 corner posts
+        LongHashSet blocks = new LongHashSet();
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                blocks.add(PackedPos.pack(x, 0, z));
+            }
+        }
+        LongHashSet edges = new LongHashSet();
+        OutlineBuilder.computeEdges(blocks, edges);
+        assertEquals(4 * 3 * 2 + 4, edges.size());
+    }
+
+    // A thin random shape up to 200 blocks long in X, at negative or positive coordinates
+    private static Set<BlockPos> wideBlocks(Random random) {
+        int sizeX = 60 + random.nextInt(140);
+        int sizeY = 1 + random.nextInt(3);
+        int sizeZ = 1 + random.nextInt(3);
+        int offsetX = random.nextInt(200_000) - 100_000;
+        int offsetY = random.nextInt(300);
+        int offsetZ = random.nextInt(200_000) - 100_000;
+        double density = 0.2 + random.nextDouble() * 0.7;
+
+        Set<BlockPos> blocks = new HashSet<>();
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    if (random.nextDouble() < density) {
+                        blocks.add(new BlockPos(offsetX + x, offsetY + y, offsetZ + z));
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    // The edge checks as they were written against Set<BlockPos>, before positions were packed
+    private static Set<Long> setOutline(Set<BlockPos> blocks) {
+        Set<EdgePos> drawn = new HashSet<>();
+        for (BlockPos pos : blocks) {
+            int x = pos.x(), y = pos.y(), z = pos.z();
+            checkVerticalEdge(blocks, drawn, x, y, z);
+            checkVerticalEdge(blocks, drawn, x + 1, y, z);
+            checkVerticalEdge(blocks, drawn, x, y, z + 1);
+            checkVerticalEdge(blocks, drawn, x + 1, y, z + 1);
+
+            checkXEdge(blocks, drawn, x, y, z);
+            checkXEdge(blocks, drawn, x, y + 1, z);
+            checkXEdge(blocks, drawn, x, y, z + 1);
+            checkXEdge(blocks, drawn, x, y + 1, z + 1);
+
+            checkZEdge(blocks, drawn, x, y, z);
+            checkZEdge(blocks, drawn, x + 1, y, z);
+            checkZEdge(blocks, drawn, x, y + 1, z);
+            checkZEdge(blocks, drawn, x + 1, y + 1, z);
+        }
+
+        Set<Long> packed = new HashSet<>();
+        for (EdgePos edge : drawn) {
+            int axis = edge.axis == 'X' ? PackedPos.AXIS_X : edge.axis == 'Y' ? PackedPos.AXIS_Y : PackedPos.AXIS_Z;
+            packed.add(PackedPos.edge(edge.x, edge.y, edge.z, axis));
+        }
+        return packed;
+    }
+
+    private static void checkVerticalEdge(Set<BlockPos> blocks, Set<EdgePos> drawn, int ex, int ey, int ez) {
+        EdgePos edge = new EdgePos(ex, ey, ez, 'Y');
+        if (drawn.contains(edge)) return;
+        if (shouldDrawEdge(
+                blocks.contains(new BlockPos(ex - 1, ey, ez - 1)),
+                blocks.contains(new BlockPos(ex, ey, ez - 1)),
+                blocks.contains(new BlockPos(ex - 1, ey, ez)),
+                blocks.contains(new BlockPos(ex, ey, ez)))) {
+            drawn.add(edge);
+        }
+    }
+
+    private static void checkXEdge(Set<BlockPos> blocks, Set<EdgePos> drawn, int ex, int ey, int ez) {
+        EdgePos edge = new EdgePos(ex, ey, ez, 'X');
+        if (drawn.contains(edge)) return;
+        if (shouldDrawEdge(
+                blocks.contains(new BlockPos(ex, ey - 1, ez - 1)),
+                blocks.contains(new BlockPos(ex, ey, ez - 1)),
+                blocks.contains(new BlockPos(ex, ey - 1, ez)),
+                blocks.contains(new BlockPos(ex, ey, ez)))) {
+            drawn.add(edge);
+        }
+    }
+
+    private static void checkZEdge(Set<BlockPos> blocks, Set<EdgePos> drawn, int ex, int ey, int ez) {
+        EdgePos edge = new EdgePos(ex, ey, ez, 'Z');
+        if (drawn.contains(edge)) return;
+        if (shouldDrawEdge(
+                blocks.contains(new BlockPos(ex - 1, ey - 1, ez)),
+                blocks.contains(new BlockPos(ex, ey - 1, ez)),
+                blocks.contains(new BlockPos(ex - 1, ey, ez)),
+                blocks.contains(new BlockPos(ex, ey, ez)))) {
+            drawn.add(edge);
+        }
+    }
+
+    private static boolean shouldDrawEdge(boolean a, boolean b, boolean c, boolean d) {
+        int count = (a ? 1 : 0) + (b ? 1 : 0) + (c ? 1 : 0) + (d ? 1 : 0);
+        if (count == 0 || count == 4) return false;
+        if (count == 1 || count == 3) return true;
+        return (a && d && !b && !c) || (b && c && !a && !d);
+    }
+
+    private record EdgePos(int x, int y, int z, char axis) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.pauwma.barrierview.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The emit path's queue-and-cache loop, run over the same frame more than
+ * once: after the first pass, refreshes and other viewers must be served
+ * entirely from the cache.
+ */
+class ShapeCacheTest {
+
+    private static final int RED = 0xFF0000;
+    private static final int BLUE = 0x0000FF;
+
+    @Test
+    void secondPassBuildsNothing() {
+        SegmentList frame = randomFrame(new Random(3));
+        ShapeCache<long[]> cache = new ShapeCache<>(frame.size(), ShapeCacheTest::build);
+        ShapeQueue queue = new ShapeQueue();
+
+        List<long[]> first = emit(queue, cache, frame, RED, 0, 0, 0);
+        assertEquals(frame.size(), cache.built());
+        assertEquals(0, cache.hits());
+
+        // A keep-alive refresh for a viewer somewhere else, so shapes come out in another order
+        List<long[]> second = emit(queue, cache, frame, RED, 40, -20, 15);
+        assertEquals(frame.size(), cache.built());
+        assertEquals(frame.size(), cache.hits());
+        assertEquals(sortedKeys(first), sortedKeys(second));
+        for (long[] shape : second) {
+            assertSame(first.get((int) shape[1]), shape);
+        }
+    }
+
+    @Test
+    void newColorBuildsEveryShapeOnce() {
+        SegmentList frame = randomFrame(new Random(5));
+        ShapeCache<long[]> cache = new ShapeCache<>(frame.size() * 2, ShapeCacheTest::build);
+        ShapeQueue queue = new ShapeQueue();
+
+        List<long[]> red = emit(queue, cache, frame, RED, 0, 0, 0);
+        List<long[]> blue = emit(queue, cache, frame, BLUE, 0, 0, 0);
+        assertEquals(frame.size() * 2L, cache.built());
+        assertNotSame(red.get(0), blue.get(0));
+
+        emit(queue, cache, frame, BLUE, 0, 0, 0);
+        emit(queue, cache, frame, RED, 0, 0, 0);
+        assertEquals(frame.size() * 2L, cache.built());
+    }
+
+    // Like ShapeStream: queue the frame nearest-first, then look every shape up in its color;
+    // returns the shapes in segment order
+    private static List<long[]> emit(ShapeQueue queue, ShapeCache<long[]> cache, SegmentList frame, int color,
+                                     double viewerX, double viewerY, double viewerZ) {
+        long[][] shapes = new long[frame.size()][];
+        queue.fill(frame, null, viewerX, viewerY, viewerZ);
+        while (!queue.isEmpty()) {
+            SegmentList segments = queue.segments();
+            int i = queue.next();
+            shapes[i] = cache.get(segments, i, color);
+        }
+        return List.of(shapes);
+    }
+
+    // Stands in for a packet: the segment's key and index when it was built
+    private static long[] build(SegmentList segments, int i) {
+        return new long[]{segments.key(i), i};
+    }
+
+    private static List<Long> sortedKeys(List<long[]> shapes) {
+        List<Long> keys = new ArrayList<>();
+        for (long[] shape : shapes) {
+            keys.add(shape[0]);
+        }
+        keys.sort(null);
+        return keys;
+    }
+
+    private static SegmentList randomFrame(Random random) {
+        LongHashSet edges = new LongHashSet();
+        for (int round = 0; edges.size() < 500; round++) {
+            OutlineBuilder.computeEdges(Volumes.pack(Volumes.randomBlocks(random, round)), edges);
+        }
+        SegmentList frame = new SegmentList();
+        EdgeMerger.merge(edges, frame);
+        return frame;
+    }
+}
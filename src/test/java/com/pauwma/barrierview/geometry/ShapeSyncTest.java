@@ -0,0 +1,97 @@
+package com.pauwma.barrierview.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * When a sync clears the client first and what it queues: only new shapes
+ * while nothing was removed or recolored, everything after a clear or once
+ * the shapes are due for a refresh.
+ */
+class ShapeSyncTest {
+
+    private static final long REFRESH_AFTER_MS = 7_000L;
+    private static final int RED = 0xFF0000;
+    private static final int BLUE = 0x0000FF;
+
+    @Test
+    void recolorClearsOldShapesFirst() {
+        ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+        SegmentList frame = boxes(3);
+
+        assertFalse(update(sync, frame, RED, 0));
+        assertEquals(frame.size(), drain(sync));
+
+        // Same geometry in a new color: the red shapes would otherwise stay up until they expire
+        assertTrue(update(sync, frame, BLUE, 250));
+        assertEquals(frame.size(), sync.pending().size());
+        assertEquals(BLUE, sync.colorKey(0));
+        drain(sync);
+
+        assertFalse(update(sync, frame, BLUE, 500));
+        assertEquals(0, sync.pending().size());
+    }
+
+    @Test
+    void removalClearsAndResendsTheRest() {
+        ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+        update(sync, boxes(3), RED, 0);
+        drain(sync);
+
+        SegmentList fewer = boxes(2);
+        assertTrue(update(sync, fewer, RED, 250));
+        assertEquals(fewer.size(), sync.pending().size());
+    }
+
+    @Test
+    void additionOnlySendsNewShapes() {
+        ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+        update(sync, boxes(2), RED, 0);
+        drain(sync);
+
+        assertFalse(update(sync, boxes(3), RED, 250));
+        assertEquals(12, sync.pending().size());
+    }
+
+    @Test
+    void refreshResendsWithoutClearing() {
+        ShapeSync sync = new ShapeSync(REFRESH_AFTER_MS);
+        SegmentList frame = boxes(2);
+        update(sync, frame, RED, 0);
+        drain(sync);
+
+        assertFalse(update(sync, frame, RED, REFRESH_AFTER_MS - 1));
+        assertEquals(0, sync.pending().size());
+        assertFalse(update(sync, frame, RED, REFRESH_AFTER_MS));
+        assertEquals(frame.size(), sync.pending().size());
+    }
+
+    private static boolean update(ShapeSync sync, SegmentList frame, int color, long now) {
+        sync.colorKeys(1)[0] = color;
+        return sync.update(frame, now, 0, 0, 0);
+    }
+
+    // Send everything queued, as ShapeStream does with an unlimited budget
+    private static int drain(ShapeSync sync) {
+        ShapeQueue pending = sync.pending();
+        int sent = 0;
+        while (!pending.isEmpty()) {
+            SegmentList segments = pending.segments();
+            sync.sent(segments, pending.next());
+            sent++;
+        }
+        return sent;
+    }
+
+    // Separate unit boxes along X at negative coordinates, 12 edges each
+    private static SegmentList boxes(int count) {
+        SegmentList segments = new SegmentList();
+        for (int i = 0; i < count; i++) {
+            segments.addBox(-10 + i * 3, -2, -7, -9 + i * 3, -1, -6);
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,77 @@
+package com.pauwma.barrierview.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The SIMD stencil against the scalar word loop on the same bitmaps. Widths
+ * around the 64-bit word boundaries and every small height and depth give
+ * word counts that leave each possible lane tail.
+ */
+class VectorOutlineTest {
+
+    private static final int[] WIDTHS = {1, 2, 61, 62, 63, 64, 65, 125, 126, 127, 190};
+
+    @Test
+    void matchesScalarOutlineOnRandomBitmaps() {
+        assumeTrue(OutlineBuilder.VECTOR_SUPPORTED, "Vector API not available on this JVM");
+
+        Random random = new Random(13);
+        // One bitmap for every round, like the render path, so stale words past a smaller box are exercised
+        VoxelBitmap bitmap = new VoxelBitmap();
+        for (int width : WIDTHS) {
+            for (int height = 1; height <= 4; height++) {
+                for (int depth = 1; depth <= 5; depth++) {
+                    double density = random.nextDouble();
+                    int minX = random.nextInt(2000) - 1000;
+                    int minY = random.nextInt(200) - 100;
+                    int minZ = random.nextInt(2000) - 1000;
+                    bitmap.reset(minX, minY, minZ, width, height, depth);
+                    for (int x = 0; x < width; x++) {
+                        for (int y = 0; y < height; y++) {
+                            for (int z = 0; z < depth; z++) {
+                                if (random.nextDouble() < density) bitmap.set(minX + x, minY + y, minZ + z);
+                            }
+                        }
+                    }
+
+                    LongHashSet scalar = new LongHashSet();
+                    OutlineBuilder.computeEdges(bitmap, scalar, false);
+                    LongHashSet vector = new LongHashSet();
+                    VectorOutline.computeEdges(bitmap, vector);
+
+                    assertEquals(Volumes.toSet(scalar), Volumes.toSet(vector),
+                            width + "x" + height + "x" + depth + " with " + VectorOutline.laneCount() + " lanes");
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesScalarOutlineOnFullBitmaps() {
+        assumeTrue(OutlineBuilder.VECTOR_SUPPORTED, "Vector API not available on this JVM");
+
+        VoxelBitmap bitmap = new VoxelBitmap();
+        for (int width : WIDTHS) {
+            bitmap.reset(-width / 2, -2, -3, width, 3, 3);
+            for (int x = -width / 2; x < width - width / 2; x++) {
+                for (int y = -2; y < 1; y++) {
+                    for (int z = -3; z < 0; z++) {
+                        bitmap.set(x, y, z);
+                    }
+                }
+            }
+
+            LongHashSet scalar = new LongHashSet();
+            OutlineBuilder.computeEdges(bitmap, scalar, false);
+            LongHashSet vector = new LongHashSet();
+            VectorOutline.computeEdges(bitmap, vector);
+
+            assertEquals(Volumes.toSet(scalar), Volumes.toSet(vector), "width " + width);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.pauwma.barrierview.geometry;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Random block sets for the geometry tests: dense and sparse boxes placed on
+ * either side of the origin, so negative coordinates are always covered.
+ */
+final class Volumes {
+
+    private Volumes() {
+    }
+
+    record BlockPos(int x, int y, int z) {
+    }
+
+    // Round-dependent size, density and offset; every other round sits at negative coordinates
+    static Set<BlockPos> randomBlocks(Random random, int round) {
+        int sizeX = 1 + random.nextInt(12);
+        int sizeY = 1 + random.nextInt(12);
+        int sizeZ = 1 + random.nextInt(12);
+        double density = round % 3 == 0 ? 0.9 : round % 3 == 1 ? 0.5 : 0.1;
+        int sign = round % 2 == 0 ? -1 : 1;
+        int offsetX = sign * random.nextInt(100_000);
+        int offsetY = sign * random.nextInt(1000);
+        int offsetZ = -sign * random.nextInt(100_000);
+
+        Set<BlockPos> blocks = new HashSet<>();
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    if (random.nextDouble() < density) {
+                        blocks.add(new BlockPos(offsetX + x, offsetY + y, offsetZ + z));
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    static LongHashSet pack(Set<BlockPos> blocks) {
+        LongHashSet packed = new LongHashSet();
+        for (BlockPos pos : blocks) {
+            packed.add(PackedPos.pack(pos.x(), pos.y(), pos.z()));
+        }
+        return packed;
+    }
+
+    // Reset the bitmap to the blocks' bounds plus margin on every side and set the blocks
+    static void fill(VoxelBitmap bitmap, Set<BlockPos> blocks, int margin) {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (BlockPos pos : blocks) {
+            minX = Math.min(minX, pos.x());
+            minY = Math.min(minY, pos.y());
+            minZ = Math.min(minZ, pos.z());
+            maxX = Math.max(maxX, pos.x());
+            maxY = Math.max(maxY, pos.y());
+            maxZ = Math.max(maxZ, pos.z());
+        }
+        if (blocks.isEmpty()) {
+            minX = minY = minZ = maxX = maxY = maxZ = 0;
+        }
+        bitmap.reset(minX - margin, minY - margin, minZ - margin,
+                maxX - minX + 1 + 2 * margin, maxY - minY + 1 + 2 * margin, maxZ - minZ + 1 + 2 * margin);
+        for (BlockPos pos : blocks) {
+            bitmap.set(pos.x(), pos.y(), pos.z());
+        }
+    }
+
+    static Set<Long> toSet(LongHashSet set) {
+        Set<Long> values = new HashSet<>();
+        set.forEach(values::add);
+        return values;
+    }
+}